@@ -0,0 +1,236 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ *
+ * Minimal benchmark harness.  Runs each benchmark for a number of timed
+ * warmup and measurement iterations and reports the average time per
+ * operation.  As in JMH, operations are timed in batches long enough
+ * that reading the clock does not dominate fast benchmarks; the batch
+ * size is found during warmup.  Results can be written in the same JSON
+ * layout as JMH's <code>-rf json</code> output, so existing JMH tooling
+ * can read them.
+ *
+ */
+public class BenchmarkRunner {
+	// z value for a 99.9% confidence interval (normal approximation).
+	private static final double Z_999 = 3.291;
+	// Shortest batch of operations timed by a single clock reading.
+	private static final long MIN_BATCH_NANOS = 10000L;
+
+	private int warmupIterations = 5;
+	private int measurementIterations = 10;
+	private long iterationNanos = 1000000000L;
+	private volatile long sink;
+
+	/**
+	 * A single benchmarked operation.  <code>setup()</code> is called
+	 * once, untimed, before the iterations start.
+	 */
+	public static abstract class Benchmark {
+		final String name;
+		final String[] params;
+
+		/**
+		 * @param name	Name of the benchmark.
+		 * @param params	Alternating parameter names and values.
+		 */
+		public Benchmark(String name, String... params){
+			this.name = name;
+			this.params = params;
+		}
+
+		public void setup(){}
+
+		/**
+		 * Perform one operation.
+		 * @return	Any value derived from the result, so that the work
+		 * cannot be optimised away.
+		 */
+		public abstract long run();
+	}
+
+	/**
+	 * Result of one benchmark.  Scores are in microseconds per
+	 * operation.
+	 */
+	public static class Result {
+		final Benchmark benchmark;
+		final double[] scores;
+
+		Result(Benchmark benchmark, double[] scores){
+			this.benchmark = benchmark;
+			this.scores = scores;
+		}
+
+		public double getScore(){
+			double sum = 0;
+			for(double s : scores)
+				sum += s;
+			return sum / scores.length;
+		}
+
+		public double getScoreError(){
+			if(scores.length < 2)
+				return Double.NaN;
+			double mean = getScore();
+			double squares = 0;
+			for(double s : scores)
+				squares += (s - mean) * (s - mean);
+			return Z_999 * Math.sqrt(squares / (scores.length - 1)) / Math.sqrt(scores.length);
+		}
+	}
+
+	public void setWarmupIterations(int warmupIterations){
+		this.warmupIterations = warmupIterations;
+	}
+
+	public void setMeasurementIterations(int measurementIterations){
+		this.measurementIterations = measurementIterations;
+	}
+
+	public void setIterationMillis(long millis){
+		this.iterationNanos = millis * 1000000L;
+	}
+
+	/**
+	 * Run a benchmark and return its result.
+	 * @param b	Benchmark to run.
+	 * @return	Average time per operation for each measurement
+	 * iteration.
+	 */
+	public Result run(Benchmark b){
+		b.setup();
+		int batch = 1;
+		// At least one warmup iteration is needed to find the batch size.
+		for(int i = 0; i < Math.max(1, warmupIterations); i++)
+			batch = calibrate(b, batch);
+		double[] scores = new double[measurementIterations];
+		for(int i = 0; i < measurementIterations; i++)
+			scores[i] = iteration(b, batch);
+		return new Result(b, scores);
+	}
+
+	/**
+	 * Run one warmup iteration, doubling the batch size until a batch
+	 * takes at least <code>MIN_BATCH_NANOS</code>.
+	 * @param b	Benchmark to run.
+	 * @param batch	Batch size found so far.
+	 * @return	Batch size to use from now on.
+	 */
+	private int calibrate(Benchmark b, int batch){
+		long sum = 0;
+		long start = System.nanoTime();
+		long elapsed = 0;
+		while(elapsed < iterationNanos){
+			long batchStart = System.nanoTime();
+			for(int i = 0; i < batch; i++)
+				sum += b.run();
+			long now = System.nanoTime();
+			if(now - batchStart < MIN_BATCH_NANOS && batch < (1 << 30))
+				batch <<= 1;
+			elapsed = now - start;
+		}
+		sink += sum;
+		return batch;
+	}
+
+	private double iteration(Benchmark b, int batch){
+		long sum = 0;
+		long ops = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do{
+			for(int i = 0; i < batch; i++)
+				sum += b.run();
+			ops += batch;
+			elapsed = System.nanoTime() - start;
+		}while(elapsed < iterationNanos);
+		sink += sum;
+		return elapsed / 1000.0 / ops;
+	}
+
+	/**
+	 * Format a result as a single human-readable line.
+	 * @param r
+	 * @return	Line of text.
+	 */
+	public static String format(Result r){
+		StringBuilder sb = new StringBuilder();
+		sb.append(String.format(Locale.US, "%-40s", r.benchmark.name));
+		for(int i = 0; i + 1 < r.benchmark.params.length; i += 2)
+			sb.append(String.format(Locale.US, " %s=%-8s", r.benchmark.params[i], r.benchmark.params[i+1]));
+		sb.append(String.format(Locale.US, " %12.3f +- %8.3f us/op", r.getScore(), r.getScoreError()));
+		return sb.toString();
+	}
+
+	/**
+	 * Write results as a JMH-style JSON array.
+	 * @param results
+	 * @param out
+	 * @throws IOException
+	 */
+	public static void writeJson(List<Result> results, Writer out) throws IOException{
+		out.write("[\n");
+		for(int i = 0; i < results.size(); i++){
+			Result r = results.get(i);
+			out.write("    {\n");
+			out.write("        \"benchmark\" : \"" + r.benchmark.name + "\",\n");
+			out.write("        \"mode\" : \"avgt\",\n");
+			out.write("        \"measurementIterations\" : " + r.scores.length + ",\n");
+			out.write("        \"params\" : {");
+			List<String> params = new ArrayList<String>();
+			for(int j = 0; j + 1 < r.benchmark.params.length; j += 2)
+				params.add("\"" + r.benchmark.params[j] + "\" : \"" + r.benchmark.params[j+1] + "\"");
+			out.write(join(params));
+			out.write("},\n");
+			out.write("        \"primaryMetric\" : {\n");
+			out.write("            \"score\" : " + number(r.getScore()) + ",\n");
+			out.write("            \"scoreError\" : " + number(r.getScoreError()) + ",\n");
+			out.write("            \"scoreUnit\" : \"us/op\",\n");
+			List<String> raw = new ArrayList<String>();
+			for(double s : r.scores)
+				raw.add(number(s));
+			out.write("            \"rawData\" : [[" + join(raw) + "]]\n");
+			out.write("        }\n");
+			out.write(i + 1 < results.size() ? "    },\n" : "    }\n");
+		}
+		out.write("]\n");
+		out.flush();
+	}
+
+	private static String number(double d){
+		return Double.isNaN(d) ? "\"NaN\"" : String.format(Locale.US, "%.6f", d);
+	}
+
+	private static String join(List<String> parts){
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < parts.size(); i++){
+			if(i > 0)
+				sb.append(", ");
+			sb.append(parts.get(i));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,400 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import com.amgregori.androidgo.BenchmarkRunner.Benchmark;
+import com.amgregori.androidgo.BenchmarkRunner.Result;
+
+/**
+ *
+ * Benchmarks for the rules engine.  Usage:
+ *
+ * <pre>
+ * EngineBenchmarks [-f regex] [-p 9,13,19] [-wi 5] [-i 10] [-r millis]
+ *                  [-rf results.json]
+ * </pre>
+ *
+ * <code>-f</code> selects benchmarks by name, <code>-p</code> sets the
+ * board sizes, <code>-wi</code> and <code>-i</code> the number of
+ * warmup and measurement iterations, <code>-r</code> the length of each
+ * iteration, and <code>-rf</code> the JSON file to write results to.
+ *
+ */
+public class EngineBenchmarks {
+	private static final String[] BACKENDS = {"board", "bitboard"};
+
+	public static void main(String[] args) throws IOException{
+		BenchmarkRunner runner = new BenchmarkRunner();
+		Pattern filter = Pattern.compile(".*");
+		String[] sizes = {"9", "13", "19"};
+		String resultFile = null;
+		for(int i = 0; i + 1 < args.length; i += 2){
+			if(args[i].equals("-f"))
+				filter = Pattern.compile(args[i+1]);
+			else if(args[i].equals("-p"))
+				sizes = args[i+1].split(",");
+			else if(args[i].equals("-wi"))
+				runner.setWarmupIterations(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-i"))
+				runner.setMeasurementIterations(Integer.parseInt(args[i+1]));
+			else if(args[i].equals("-r"))
+				runner.setIterationMillis(Long.parseLong(args[i+1]));
+			else if(args[i].equals("-rf"))
+				resultFile = args[i+1];
+		}
+
+		List<Result> results = new ArrayList<Result>();
+		for(String size : sizes){
+			for(Benchmark b : benchmarks(Integer.parseInt(size))){
+				if(!filter.matcher(b.name).find())
+					continue;
+				Result r = runner.run(b);
+				System.out.println(BenchmarkRunner.format(r));
+				results.add(r);
+			}
+		}
+		if(resultFile != null){
+			Writer out = new FileWriter(resultFile);
+			try{
+				BenchmarkRunner.writeJson(results, out);
+			}finally{
+				out.close();
+			}
+		}
+	}
+
+	static Board newBoard(String backend, String position){
+		return backend.equals("bitboard") ? new BitBoard(position) : new Board(position);
+	}
+
+	static Board newBoard(String backend, int boardSize){
+		return newBoard(backend, Board.emptyBoardPosition(boardSize));
+	}
+
+	/**
+	 * Returns all benchmarks for one board size.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * @return	List of benchmarks.
+	 */
+	static List<Benchmark> benchmarks(final int boardSize){
+		List<Benchmark> list = new ArrayList<Benchmark>();
+		final String size = Integer.toString(boardSize);
+		final int[] longGame = Workloads.longGame(boardSize);
+		final int[] captureGame = Workloads.captureGame(boardSize);
+		final String largeGroup = Workloads.largeGroup(boardSize);
+
+		for(final String backend : BACKENDS){
+			final Board group = newBoard(backend, largeGroup);
+
+			list.add(new Benchmark("Board.getChain", "boardSize", size, "backend", backend, "workload", "largeGroup"){
+				public long run(){
+					return group.getChain(0, 0).size();
+				}
+			});
+
+			list.add(new Benchmark("Board.isCaptured", "boardSize", size, "backend", backend, "workload", "largeGroup"){
+				public long run(){
+					return group.isCaptured(0, 0) ? 1 : 0;
+				}
+			});
+
+			list.add(replay("Game.setStone", backend, size, "longGame", longGame));
+			list.add(replay("Game.setStone", backend, size, "captureGame", captureGame));
+		}
+
+		list.add(new Benchmark("Game.passTurn", "boardSize", size, "workload", "longGame"){
+			Game game;
+			Situation last;
+
+			@Override
+			public void setup(){
+				game = Workloads.replay(new Board(boardSize), longGame);
+				last = game.getHistory().current();
+			}
+
+			// Step back after each pass so the history does not grow, and
+			// drop the pass from the tree of variations so that the next
+			// call adds a new one rather than revisiting it.
+			public long run(){
+				game.passTurn();
+				game.stepHistory(Game.PREVIOUS);
+				last.firstChild = null;
+				last.next = null;
+				return game.getMoveNumber();
+			}
+		});
+
+		list.add(new Benchmark("History.contains", "boardSize", size, "workload", "longGame"){
+			History history;
+			Situation[] probes;
+			int next;
+
+			// Half of the probes are positions from the game, half are
+			// positions that never occurred.
+			@Override
+			public void setup(){
+				Game game = new Game(Game.POSITIONAL, false, boardSize);
+				Random random = new Random(Workloads.SEED);
+				probes = new Situation[longGame.length * 2];
+				for(int i = 0; i < longGame.length; i++){
+					game.setStone(longGame[i]);
+					char[] position = game.getPosition().clone();
+					char turn = i % 2 == 0 ? Game.WHITE : Game.BLACK;
+					probes[2*i] = new Situation(new String(position), turn);
+					position[random.nextInt(position.length)] = Game.BLACK;
+					position[random.nextInt(position.length)] = Game.WHITE;
+					probes[2*i+1] = new Situation(new String(position), turn);
+				}
+				history = game.getHistory();
+			}
+
+			public long run(){
+				if(next == probes.length)
+					next = 0;
+				return history.contains(probes[next++]) ? 1 : 0;
+			}
+		});
+
+		list.add(new Benchmark("Game.stepHistory", "boardSize", size, "workload", "longGame", "direction", "firstLast"){
+			Game game;
+
+			@Override
+			public void setup(){
+				game = Workloads.replay(new Board(boardSize), longGame);
+			}
+
+			public long run(){
+				game.stepHistory(Game.FIRST);
+				game.stepHistory(Game.LAST);
+				return game.getMoveNumber();
+			}
+		});
+
+		list.add(new Benchmark("Game.stepHistory", "boardSize", size, "workload", "longGame", "direction", "previousNext"){
+			Game game;
+			int direction = Game.PREVIOUS;
+
+			// Sweep back to the start of the game, then forward to the end.
+			@Override
+			public void setup(){
+				game = Workloads.replay(new Board(boardSize), longGame);
+			}
+
+			public long run(){
+				int move = game.getMoveNumber();
+				if(move == 0)
+					direction = Game.NEXT;
+				else if(move == game.getMoveCount())
+					direction = Game.PREVIOUS;
+				game.stepHistory(direction);
+				return move;
+			}
+		});
+
+		list.add(new Benchmark("Game.getScore", "boardSize", size, "workload", "longGame"){
+			Game game;
+
+			@Override
+			public void setup(){
+				game = Workloads.replay(new Board(boardSize), longGame);
+			}
+
+			public long run(){
+				return (long) game.getScore(Scorer.AREA, 7.5);
+			}
+		});
+
+		// Replays the game asking for the legal moves after every move,
+		// so the score includes the cost of Game.setStone.
+		list.add(new Benchmark("Game.getLegalMoves", "boardSize", size, "workload", "longGame", "moves", Integer.toString(longGame.length)){
+			public long run(){
+				Game game = new Game(Game.POSITIONAL, false, boardSize);
+				long legal = 0;
+				for(int m : longGame){
+					game.setStone(m);
+					legal += game.getLegalMoves()[0];
+				}
+				return legal;
+			}
+		});
+
+		list.add(new Benchmark("SgfReader.next", "boardSize", size, "workload", "longGame"){
+			byte[] sgf;
+
+			@Override
+			public void setup(){
+				ByteArrayOutputStream out = new ByteArrayOutputStream();
+				SgfWriter writer = new SgfWriter(out);
+				try{
+					writer.write(Workloads.replay(new Board(boardSize), longGame));
+					writer.flush();
+				}catch(IOException ex){
+					throw new RuntimeException(ex);
+				}
+				sgf = out.toByteArray();
+			}
+
+			public long run(){
+				try{
+					return new SgfReader(new ByteArrayInputStream(sgf)).next().getMoveCount();
+				}catch(IOException ex){
+					throw new RuntimeException(ex);
+				}
+			}
+		});
+
+		// Keys of the game's situations, stored once, probed half as
+		// stored and half with the wrong side to move.
+		list.add(new Benchmark("TranspositionTable.get", "boardSize", size, "workload", "longGame", "bytes", "16M"){
+			TranspositionTable table;
+			long[] keys;
+			int next;
+
+			@Override
+			public void setup(){
+				table = new TranspositionTable(16 << 20);
+				Board board = new Board(boardSize);
+				Game game = new Game(Game.POSITIONAL, false, board);
+				keys = new long[longGame.length * 2];
+				for(int i = 0; i < longGame.length; i++){
+					game.setStone(longGame[i]);
+					keys[2*i] = TranspositionTable.key(board, game.getNextTurn());
+					keys[2*i+1] = TranspositionTable.key(board, Game.invertColor(game.getNextTurn()));
+					table.put(keys[2*i], i);
+				}
+			}
+
+			public long run(){
+				if(next == keys.length)
+					next = 0;
+				return table.get(keys[next++], -1);
+			}
+		});
+
+		// Weighted pick among the empty points of the game's final
+		// position, whose patterns the board keeps up to date.
+		list.add(new Benchmark("PatternWeights.pick", "boardSize", size, "workload", "longGame"){
+			PatternWeights weights;
+			Board board;
+			int[] empty;
+			int count;
+			Random random;
+
+			@Override
+			public void setup(){
+				weights = new PatternWeights(10);
+				weights.set(PatternWeights.pattern("XO. ... ..."), 50);
+				weights.set(PatternWeights.invert(PatternWeights.pattern("XO. ... ...")), 50);
+				weights.set(PatternWeights.pattern("... ... ###"), 2);
+				board = new Board(boardSize);
+				Game game = new Game(Game.POSITIONAL, false, board);
+				for(int move : longGame)
+					game.setStone(move);
+				empty = new int[boardSize * boardSize];
+				count = 0;
+				for(int p = 0; p < empty.length; p++){
+					if(board.getColor(p % boardSize, p / boardSize) == Game.EMPTY)
+						empty[count++] = p;
+				}
+				random = new Random(Workloads.SEED);
+			}
+
+			public long run(){
+				return weights.pick(board, empty, count, random.nextDouble());
+			}
+		});
+
+		list.add(ladder(size, false));
+		list.add(ladder(size, true));
+
+		list.add(new Benchmark("Playout.run", "boardSize", size, "workload", "emptyBoard"){
+			Playout playout;
+
+			@Override
+			public void setup(){
+				playout = new Playout(new Game(Game.POSITIONAL, false, boardSize));
+				playout.setSeed(Workloads.SEED);
+			}
+
+			public long run(){
+				return playout.run();
+			}
+		});
+
+		return list;
+	}
+
+	/**
+	 * Benchmark replaying a whole game with <code>Game.setStone</code>.
+	 * Divide the score by the <code>moves</code> parameter for the cost
+	 * per move.
+	 */
+	private static Benchmark replay(String name, final String backend, final String size, String workload, final int[] moves){
+		return new Benchmark(name, "boardSize", size, "backend", backend, "workload", workload, "moves", Integer.toString(moves.length)){
+			public long run(){
+				Game game = new Game(Game.POSITIONAL, false, newBoard(backend, Integer.parseInt(size)));
+				long changes = 0;
+				for(int m : moves)
+					changes += game.setStone(m).length;
+				return changes;
+			}
+		};
+	}
+
+	/**
+	 * Benchmark reading a ladder with <code>TacticalReader</code>: a
+	 * white stone in atari near the top right corner, to move, chased
+	 * to the bottom left.  With <code>broken</code>, a white stone in
+	 * the way lets it escape.
+	 */
+	private static Benchmark ladder(final String size, final boolean broken){
+		return new Benchmark("TacticalReader.readEscape", "boardSize", size, "workload", broken ? "brokenLadder" : "ladder"){
+			TacticalReader reader;
+			Board board;
+			int x;
+
+			@Override
+			public void setup(){
+				int boardSize = Integer.parseInt(size);
+				x = boardSize - 4;
+				board = new Board(boardSize);
+				board.setStone(x, 3, Game.WHITE);
+				board.setStone(x - 1, 3, Game.BLACK);
+				board.setStone(x, 2, Game.BLACK);
+				board.setStone(x + 1, 3, Game.BLACK);
+				board.setStone(x + 1, 4, Game.BLACK);
+				if(broken)
+					board.setStone(3, boardSize - 4, Game.WHITE);
+				reader = new TacticalReader();
+			}
+
+			public long run(){
+				return reader.readEscape(board, x, 3);
+			}
+		};
+	}
+}
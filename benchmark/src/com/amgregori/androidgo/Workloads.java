@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ *
+ * Deterministic workloads for the engine benchmarks.  Every workload is
+ * generated from a fixed seed, so results stay comparable between runs.
+ *
+ */
+final class Workloads {
+	static final long SEED = 20131108L;
+
+	private Workloads(){}
+
+	/**
+	 * Generate a long game by playing random legal moves until neither
+	 * side can find one.  Such games run to roughly two or three times
+	 * the number of points on the board.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * @return	Indexes of the stones played, in order.
+	 */
+	static int[] longGame(int boardSize){
+		Random random = new Random(SEED + boardSize);
+		Game game = new Game(Game.POSITIONAL, false, boardSize);
+		int area = boardSize * boardSize;
+		int[] moves = new int[area * 3];
+		int count = 0;
+		int failures = 0;
+		while(count < moves.length && failures < area){
+			int index = random.nextInt(area);
+			if(game.setStone(index).length == 0){
+				failures++;
+			}else{
+				moves[count++] = index;
+				failures = 0;
+			}
+		}
+		return Arrays.copyOf(moves, count);
+	}
+
+	/**
+	 * Generate a game where each side captures whenever it can, and
+	 * otherwise plays a random legal move.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * @return	Indexes of the stones played, in order.
+	 */
+	static int[] captureGame(int boardSize){
+		Random random = new Random(SEED - boardSize);
+		Game game = new Game(Game.POSITIONAL, false, boardSize);
+		int area = boardSize * boardSize;
+		int[] moves = new int[area * 3];
+		int count = 0;
+		int failures = 0;
+		char turn = Game.BLACK;
+		while(count < moves.length && failures < area){
+			int index = findCapture(game, Game.invertColor(turn));
+			if(index < 0 || game.setStone(index).length == 0){
+				index = random.nextInt(area);
+				if(game.setStone(index).length == 0){
+					failures++;
+					continue;
+				}
+			}
+			moves[count++] = index;
+			failures = 0;
+			turn = Game.invertColor(turn);
+		}
+		return Arrays.copyOf(moves, count);
+	}
+
+	private static int findCapture(Game game, char enemy){
+		Board board = new Board(new String(game.getPosition()));
+		int size = board.getBoardSize();
+		for(int i = 0; i < size * size; i++){
+			if(board.getColor(i % size, i / size) != enemy)
+				continue;
+			HashSet<Point> liberties = board.getChainLiberties(i % size, i / size);
+			if(liberties.size() == 1){
+				Point p = liberties.iterator().next();
+				return p.getY() * size + p.getX();
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Build a position where black forms a single snake-shaped chain
+	 * covering about half the board, with a single liberty.  White
+	 * fills the rest.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * @return	Position string.
+	 */
+	static String largeGroup(int boardSize){
+		char[] position = new char[boardSize * boardSize];
+		for(int y = 0; y < boardSize; y++){
+			for(int x = 0; x < boardSize; x++){
+				char color;
+				if(y % 2 == 0)
+					color = Game.BLACK;
+				else if(y % 4 == 1)
+					color = x == boardSize - 1 ? Game.BLACK : Game.WHITE;
+				else
+					color = x == 0 ? Game.BLACK : Game.WHITE;
+				position[y * boardSize + x] = color;
+			}
+		}
+		// The liberty sits next to the far end of the snake.
+		int last = boardSize % 2 == 1 ? boardSize - 2 : boardSize - 1;
+		int x = last % 4 == 1 ? 0 : boardSize - 1;
+		position[last * boardSize + x] = Game.EMPTY;
+		return new String(position);
+	}
+
+	/**
+	 * Replay <code>moves</code> into a new game.
+	 * @param board	Empty board to play on.
+	 * @param moves
+	 * @return	Game at the last move.
+	 */
+	static Game replay(Board board, int[] moves){
+		Game game = new Game(Game.POSITIONAL, false, board);
+		for(int m : moves)
+			game.setStone(m);
+		return game;
+	}
+}
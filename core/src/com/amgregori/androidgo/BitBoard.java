@@ -0,0 +1,346 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ *
+ * <code>Board</code> backed by bitsets.  Black, white and empty points
+ * are each stored as a packed <code>long</code> array with one bit per
+ * point (a 19x19 board takes 6 words per color), and chains and
+ * liberties are found with word-level shifts and masks instead of
+ * walking points one by one.  Can be passed to <code>Game</code> in
+ * place of a <code>Board</code>.
+ *
+ */
+public class BitBoard extends Board {
+	private final int words;
+	private final long[] black;
+	private final long[] white;
+	private final long[] empty;
+
+	// Masks of the points that have a neighbour to the left, points that
+	// have a neighbour to the right, and all points on the board.  Shared
+	// between copies.
+	private final long[] hasLeft;
+	private final long[] hasRight;
+	private final long[] onBoard;
+
+	// Work buffers for flood fills.
+	private final long[] chain;
+	private final long[] grown;
+
+	/**
+	 * Constructs a <code>BitBoard</code> from <code>position</code>.
+	 * @param position	A string where each character represents a point
+	 * on the board with the coordinates <code>x = length % boardSize
+	 * </code> and <code>y = length / boardSize</code>.
+	 */
+	public BitBoard(String position){
+		super((int) Math.sqrt(position.length()), position, false);
+		words = (this.position.length + 63) >>> 6;
+		hasLeft = new long[words];
+		hasRight = new long[words];
+		onBoard = new long[words];
+		for(int i = 0; i < this.position.length; i++){
+			set(onBoard, i);
+			if(i % boardSize > 0)
+				set(hasLeft, i);
+			if(i % boardSize < boardSize - 1)
+				set(hasRight, i);
+		}
+		chain = new long[words];
+		grown = new long[words];
+		black = new long[words];
+		white = new long[words];
+		empty = new long[words];
+		rebuild();
+	}
+
+	/**
+	 * Constructs an empty <code>BitBoard</code> with the number of
+	 * vertical lines and the number of horizontal lines equal to
+	 * <code>boardSize</code>.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * For example, a 19x19 board has a <code>boardSize</code> of 19.
+	 */
+	public BitBoard(int boardSize){
+		this(emptyBoardPosition(boardSize));
+	}
+
+	/**
+	 * Constructs a standard empty <code>BitBoard</code> of size 19x19.
+	 */
+	public BitBoard(){
+		this(19);
+	}
+
+	private BitBoard(BitBoard other){
+		super(other);
+		words = other.words;
+		hasLeft = other.hasLeft;
+		hasRight = other.hasRight;
+		onBoard = other.onBoard;
+		chain = new long[words];
+		grown = new long[words];
+		black = other.black.clone();
+		white = other.white.clone();
+		empty = other.empty.clone();
+	}
+
+	@Override
+	void rebuild(){
+		Arrays.fill(black, 0L);
+		Arrays.fill(white, 0L);
+		Arrays.fill(empty, 0L);
+		for(int i = 0; i < position.length; i++){
+			long[] bits = bits(position[i]);
+			if(bits != null)
+				set(bits, i);
+		}
+	}
+
+	@Override
+	void updateChains(int index, char previous, char color){
+		long[] bits = bits(previous);
+		if(bits != null)
+			bits[index >>> 6] &= ~(1L << index);
+		bits = bits(color);
+		if(bits != null)
+			set(bits, index);
+	}
+
+	@Override
+	public void removeStones(HashSet<Point> stones){
+		for(Point s : stones){
+			setStone(s.getX(), s.getY(), Game.EMPTY);
+		}
+	}
+
+	@Override
+	int removeChain(int index){
+		long[] own = bits(position[index]);
+		if(own == null || own == empty)
+			return 0;
+		fillChain(index, own);
+		int size = 0;
+		for(int w = 0; w < words; w++){
+			long v = chain[w];
+			own[w] &= ~v;
+			empty[w] |= v;
+			size += Long.bitCount(v);
+			while(v != 0){
+				int p = (w << 6) + Long.numberOfTrailingZeros(v);
+				hash ^= Zobrist.key(position[p], p);
+				position[p] = Game.EMPTY;
+				updatePatterns(p, Game.EMPTY);
+				v &= v - 1;
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public HashSet<Point> getChain(int x, int y){
+		HashSet<Point> points = new HashSet<Point>();
+		char color = getColor(x, y);
+		if(color != Game.WHITE && color != Game.BLACK)
+			return points;
+		fillChain(y * boardSize + x, bits(color));
+		addPoints(chain, color, points);
+		return points;
+	}
+
+	@Override
+	public int getChainSize(int x, int y){
+		char color = getColor(x, y);
+		if(color != Game.WHITE && color != Game.BLACK)
+			return 0;
+		fillChain(y * boardSize + x, bits(color));
+		int size = 0;
+		for(int w = 0; w < words; w++)
+			size += Long.bitCount(chain[w]);
+		return size;
+	}
+
+	@Override
+	boolean isCaptured(int index){
+		fillChain(index, bits(position[index]));
+		dilate(chain, grown);
+		for(int w = 0; w < words; w++){
+			if((grown[w] & empty[w]) != 0)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	int getAtariLiberty(int index){
+		fillChain(index, bits(position[index]));
+		dilate(chain, grown);
+		int liberty = NONE;
+		for(int w = 0; w < words; w++){
+			long v = grown[w] & empty[w];
+			if(v == 0)
+				continue;
+			if(liberty != NONE || Long.bitCount(v) > 1)
+				return NONE;
+			liberty = (w << 6) + Long.numberOfTrailingZeros(v);
+		}
+		return liberty;
+	}
+
+	@Override
+	void markChain(int index, long[] stones, long[] liberties){
+		fillChain(index, bits(position[index]));
+		dilate(chain, grown);
+		for(int w = 0; w < words; w++){
+			stones[w] |= chain[w];
+			liberties[w] |= grown[w] & empty[w];
+		}
+	}
+
+	@Override
+	public HashSet<Point> getChainLiberties(int x, int y){
+		HashSet<Point> liberties = new HashSet<Point>();
+		char color = getColor(x, y);
+		if(color != Game.WHITE && color != Game.BLACK)
+			return liberties;
+		fillChain(y * boardSize + x, bits(color));
+		dilate(chain, grown);
+		for(int w = 0; w < words; w++)
+			grown[w] &= empty[w];
+		addPoints(grown, Game.EMPTY, liberties);
+		return liberties;
+	}
+
+	@Override
+	void pushChain(int index){
+		fillChain(index, bits(position[index]));
+		for(int w = 0; w < words; w++){
+			long v = chain[w];
+			while(v != 0){
+				push((w << 6) + Long.numberOfTrailingZeros(v));
+				v &= v - 1;
+			}
+		}
+	}
+
+	@Override
+	public BitBoard clone(){
+		return new BitBoard(this);
+	}
+
+	private long[] bits(char color){
+		switch(color){
+		case Game.BLACK:
+			return black;
+		case Game.WHITE:
+			return white;
+		case Game.EMPTY:
+			return empty;
+		default:
+			return null;
+		}
+	}
+
+	private static void set(long[] bits, int index){
+		bits[index >>> 6] |= 1L << index;
+	}
+
+	private void addPoints(long[] bits, char color, HashSet<Point> points){
+		for(int w = 0; w < words; w++){
+			long v = bits[w];
+			while(v != 0){
+				int p = (w << 6) + Long.numberOfTrailingZeros(v);
+				points.add(new Point(p % boardSize, p / boardSize, color));
+				v &= v - 1;
+			}
+		}
+	}
+
+	/**
+	 * Fill <code>chain</code> with the chain containing
+	 * <code>index</code>, by repeatedly growing it into the neighbouring
+	 * points of <code>own</code> until it stops changing.
+	 */
+	private void fillChain(int index, long[] own){
+		Arrays.fill(chain, 0L);
+		set(chain, index);
+		boolean changed = true;
+		while(changed){
+			changed = false;
+			dilate(chain, grown);
+			for(int w = 0; w < words; w++){
+				long v = grown[w] & own[w];
+				if(v != chain[w]){
+					chain[w] = v;
+					changed = true;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Set <code>dst</code> to the points of <code>src</code> plus all
+	 * of their neighbours.
+	 */
+	private void dilate(long[] src, long[] dst){
+		for(int w = 0; w < words; w++){
+			dst[w] = (src[w]
+					| (shiftUp(src, w, 1) & hasLeft[w])
+					| (shiftDown(src, w, 1) & hasRight[w])
+					| shiftUp(src, w, boardSize)
+					| shiftDown(src, w, boardSize))
+					& onBoard[w];
+		}
+	}
+
+	/**
+	 * Returns word <code>w</code> of <code>src</code> shifted towards
+	 * higher indexes by <code>k</code> bits, i.e., bit <code>i</code>
+	 * of the result is bit <code>i - k</code> of <code>src</code>.
+	 */
+	private static long shiftUp(long[] src, int w, int k){
+		int i = w - (k >>> 6);
+		int b = k & 63;
+		if(i < 0)
+			return 0L;
+		long v = src[i] << b;
+		if(b != 0 && i > 0)
+			v |= src[i - 1] >>> (64 - b);
+		return v;
+	}
+
+	/**
+	 * Returns word <code>w</code> of <code>src</code> shifted towards
+	 * lower indexes by <code>k</code> bits, i.e., bit <code>i</code>
+	 * of the result is bit <code>i + k</code> of <code>src</code>.
+	 */
+	private static long shiftDown(long[] src, int w, int k){
+		int i = w + (k >>> 6);
+		int b = k & 63;
+		if(i >= src.length)
+			return 0L;
+		long v = src[i] >>> b;
+		if(b != 0 && i + 1 < src.length)
+			v |= src[i + 1] << (64 - b);
+		return v;
+	}
+}
@@ -0,0 +1,999 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * 
+ * Model of a Go board.  Stores the state of each board point.  
+ *
+ */
+public class Board {
+	// Marks an empty point in chainHead, or an out-of-bounds neighbour.
+	static final int NONE = -1;
+
+	int boardSize;
+	char[] position;
+	long hash;
+
+	// Chain tracking.  The stones of each chain form a circular linked
+	// list through chainNext.  chainHead maps every stone to the first
+	// stone of its chain, which also holds the chain's size.
+	int[] chainHead;
+	int[] chainNext;
+	int[] chainSize;
+	// Pseudo-liberties of each chain, held by its first stone: every
+	// pair of a stone and an empty neighbour counts once, so a liberty
+	// shared by several stones is counted several times.  The count is
+	// zero exactly when the chain has no liberties, and the sums of the
+	// liberties' indexes and of their squares tell whether all of them
+	// are the same point.
+	int[] chainLibs;
+	int[] chainLibSum;
+	long[] chainLibSumSq;
+	// Work buffers for rebuilding chains without recursion.
+	private int[] stack;
+	private int[] members;
+
+	// 3x3 pattern of each point: the state of its eight neighbours, two
+	// bits each (see PATTERN_EMPTY and friends).  Neighbour d, in
+	// reading order from the top left, takes bits 2d and 2d+1, so the
+	// neighbour in the opposite direction is 7 - d.  Kept up to date on
+	// every change, by updating only the points around it.
+	static final int PATTERN_EMPTY = 0;
+	static final int PATTERN_BLACK = 1;
+	static final int PATTERN_WHITE = 2;
+	static final int PATTERN_EDGE = 3;
+	static final int[] PATTERN_DX = {-1, 0, 1, -1, 1, -1, 0, 1};
+	static final int[] PATTERN_DY = {-1, -1, -1, 0, 0, 1, 1, 1};
+	char[] patterns;
+
+	// Undo stack for makeMove() and unmakeMove().  Each move pushes the
+	// indexes of the stones it removed, their count, and a header
+	// holding the index and color of the stone played.
+	private static final int MOVE_SUICIDE = 1;
+	private static final int MOVE_BLACK = 2;
+	private int[] undo;
+	private int undoSize;
+	
+	/**
+	 * Constructs a <code>Board</code> from <code>position</code> with
+	 * <code>boardSize</code>. 
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * For example, a 19x19 board has a <code>boardSize</code> of 19.
+	 * @param position	A string of length <code>boardSize * boardSize
+	 * </code> where each character represents a point on the board with
+	 * the coordinates <code>x = length % boardSize</code> and
+	 * <code>y = length / boardSize</code>.
+	 * @param trackChains	<code>false</code> for subclasses that keep
+	 * their own chain representation instead of the linked lists.
+	 */
+	Board(int boardSize, String position, boolean trackChains){
+		if(position.length() != boardSize*boardSize)
+			throw new BoardSizeException();
+
+		this.position = position.toCharArray();
+		this.boardSize = boardSize; 
+		this.hash = Zobrist.hash(this.position);
+		this.patterns = new char[this.position.length];
+		initPatterns();
+		if(trackChains)
+			initChains();
+	}
+
+	/**
+	 * Constructs a <code>Board</code> from <code>position</code>. 
+	 * @param position	A string where each character represents a point
+	 * on the board with the coordinates <code>x = length % boardSize
+	 * </code> and <code>y = length / boardSize</code>.
+	 */
+	public Board(String position){
+		this((int) Math.sqrt(position.length()), position, true);
+	}
+	
+	/**
+	 * Constructs a <code>Board</code> from <code>position</code> with
+	 * the number of vertical lines and the number of horizontal lines
+	 * equal to <code>boardSize</code>. 
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * For example, a 19x19 board has a <code>boardSize</code> of 19.
+	 */
+	public Board(int boardSize){
+		this(boardSize, emptyBoardPosition(boardSize), true);
+	}
+
+	/**
+	 * Constructs a standard <code>Board</code> of size 19x19. 
+	 */
+	public Board(){
+		this(19);
+	}
+
+	/**
+	 * Constructs a deep copy of <code>other</code>.  If
+	 * <code>other</code> does not track chains, only the position and
+	 * hash are copied.
+	 * @param other	<code>Board</code> to copy.
+	 */
+	Board(Board other){
+		this.boardSize = other.boardSize;
+		this.position = other.position.clone();
+		this.hash = other.hash;
+		this.patterns = other.patterns.clone();
+		if(other.chainHead == null)
+			return;
+		this.chainHead = other.chainHead.clone();
+		this.chainNext = other.chainNext.clone();
+		this.chainSize = other.chainSize.clone();
+		this.chainLibs = other.chainLibs.clone();
+		this.chainLibSum = other.chainLibSum.clone();
+		this.chainLibSumSq = other.chainLibSumSq.clone();
+		this.stack = new int[position.length];
+		this.members = new int[position.length];
+	}
+
+	/**
+	 * Make this board a copy of <code>other</code> in place, without
+	 * allocating.  Both boards must have the same size and track chains
+	 * with the linked lists.  Recorded moves are forgotten.
+	 * @param other	<code>Board</code> to copy.
+	 */
+	void copyFrom(Board other){
+		System.arraycopy(other.position, 0, position, 0, position.length);
+		System.arraycopy(other.chainHead, 0, chainHead, 0, position.length);
+		System.arraycopy(other.chainNext, 0, chainNext, 0, position.length);
+		System.arraycopy(other.chainSize, 0, chainSize, 0, position.length);
+		System.arraycopy(other.chainLibs, 0, chainLibs, 0, position.length);
+		System.arraycopy(other.chainLibSum, 0, chainLibSum, 0, position.length);
+		System.arraycopy(other.chainLibSumSq, 0, chainLibSumSq, 0, position.length);
+		System.arraycopy(other.patterns, 0, patterns, 0, position.length);
+		hash = other.hash;
+		undoSize = 0;
+	}
+
+	/**
+	 * Returns a <code>char</code> array containing the current position
+	 * of this board.  Each <code>char</code> in the array represents a
+	 * point on the board with the coordinates
+	 * <code>x = length % boardSize</code> and
+	 * <code>y = length / boardSize</code>.  Possible values for each
+	 * <code>char</code> are: <code>Game.WHITE</code>,
+	 * <code>Game.BLACK</code>, and <code>Game.EMPTY</code>.
+	 * 
+	 * @return A <code>char</code> array containing the current position
+	 * of this board.
+	 * @see Game
+	 */
+	public char[] getPosition(){
+		return position;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the current position.  The hash is
+	 * updated incrementally on every change to the board, so this costs
+	 * constant time.
+	 * @return	64-bit hash of the current position.
+	 */
+	public long getHash(){
+		return hash;
+	}
+
+	/**
+	 * Replace the whole position of this board in place.
+	 * @param position	A string of the same length as the current
+	 * position.
+	 */
+	public void setPosition(String position){
+		if(position.length() != this.position.length)
+			throw new BoardSizeException();
+		position.getChars(0, position.length(), this.position, 0);
+		this.hash = Zobrist.hash(this.position);
+		initPatterns();
+		rebuild();
+	}
+
+	static String emptyBoardPosition(int boardSize){
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < boardSize*boardSize; i++)
+			sb.append(Game.EMPTY);
+		return sb.toString();
+	}
+
+	/**
+	 * Remove stones from board.
+	 * @param stones	Set of <code>Point</code>s to make empty.
+	 */
+	public void removeStones(HashSet<Point> stones){
+		// Empty every point first, so each affected chain is only
+		// rebuilt once.
+		for(Point s : stones){
+			int index = s.getY() * boardSize + s.getX();
+			hash ^= Zobrist.key(position[index], index);
+			position[index] = Game.EMPTY;
+			updatePatterns(index, Game.EMPTY);
+		}
+		for(Point s : stones){
+			int index = s.getY() * boardSize + s.getX();
+			if(chainHead[index] != NONE)
+				splitChain(chainHead[index]);
+		}
+		// The chains next to the emptied points gained liberties.
+		for(Point s : stones){
+			int index = s.getY() * boardSize + s.getX();
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(index, d);
+				if(q != NONE && isStone(position[q]))
+					countLiberties(chainHead[q]);
+			}
+		}
+	}
+
+	/**
+	 * Remove the whole chain containing the stone at location x, y.
+	 * @param x	x coordinate of any stone in the chain
+	 * @param y	y coordinate of any stone in the chain
+	 * @return	Number of stones removed.
+	 */
+	public int removeChain(int x, int y){
+		return removeChain(y * boardSize + x);
+	}
+
+	/**
+	 * Index-based version of <code>removeChain(int, int)</code>.
+	 */
+	int removeChain(int index){
+		int head = chainHead[index];
+		if(head == NONE)
+			return 0;
+		int size = chainSize[head];
+		int p = head;
+		do{
+			hash ^= Zobrist.key(position[p], p);
+			position[p] = Game.EMPTY;
+			updatePatterns(p, Game.EMPTY);
+			chainHead[p] = NONE;
+			p = chainNext[p];
+		}while(p != head);
+		// Every stone next to the removed ones is of the other color.
+		do{
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(p, d);
+				if(q != NONE && isStone(position[q]))
+					addLiberty(chainHead[q], p, 1);
+			}
+			p = chainNext[p];
+		}while(p != head);
+		return size;
+	}
+
+	/**
+	 * Get color of stones from given <code>x</code> and <code>y</code>
+	 * coordinates. 
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return Either Game.BLACK, Game.WHITE, Game.EMPTY, or
+	 * Game.OUT_OF_BOUNDS if the coordinates are outside the board's
+	 * boundaries.
+	 * @see Game
+	 */
+	public char getColor(int x, int y){
+		if(x >= 0 && x < this.boardSize && y >= 0 && y < boardSize) 
+			return this.position[y * this.boardSize + x];
+		return Game.OUT_OF_BOUNDS;
+	}
+
+	public String toString(){
+		return new String(this.position);
+	}
+
+	/**
+	 * Return the number of vertical or horizontal lines in the board.
+	 * @return	 the number of vertical or horizontal lines in the board.
+	 */
+	public int getBoardSize(){
+		return this.boardSize;
+	}
+
+	/**
+	 * Add stone to the board (without checking any of the Go rules for 
+	 * validation). 
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @param color Either Game.WHITE or Game.BLACK	
+	 */
+	public void setStone(int x, int y, char color){
+		set(y * this.boardSize + x, color);
+	}
+
+	/**
+	 * Index-based version of <code>setStone(int, int, char)</code>.
+	 */
+	void set(int index, char color){
+		char previous = this.position[index];
+		if(previous == color)
+			return;
+		this.hash ^= Zobrist.key(previous, index) ^ Zobrist.key(color, index);
+		this.position[index] = color;
+		updatePatterns(index, color);
+		updateChains(index, previous, color);
+	}
+
+	/**
+	 * Update the chain representation after the point at
+	 * <code>index</code> changed from <code>previous</code> to
+	 * <code>color</code>.  The position and hash are already updated.
+	 */
+	void updateChains(int index, char previous, char color){
+		if(isStone(previous)){
+			// The rebuilt chains count their own liberties; the other
+			// color's chains gain one if the point is now empty.
+			splitChain(chainHead[index]);
+			if(color == Game.EMPTY){
+				for(int d = 0; d < 4; d++){
+					int q = neighbour(index, d);
+					if(q != NONE && isStone(position[q]) && position[q] != previous)
+						addLiberty(chainHead[q], index, 1);
+				}
+			}
+		}
+		if(isStone(color)){
+			if(previous == Game.EMPTY){
+				for(int d = 0; d < 4; d++){
+					int q = neighbour(index, d);
+					if(q != NONE && isStone(position[q]))
+						addLiberty(chainHead[q], index, -1);
+				}
+			}
+			joinChains(index);
+		}
+	}
+
+	/**
+	 * Play a stone, remove any chains it captures, and record the move
+	 * so that it can be taken back with <code>unmakeMove()</code>.  The
+	 * point must be empty.  No rules other than captures and suicide
+	 * are checked.
+	 * @param index	Index of the point in the board's position.
+	 * @param color	Either Game.WHITE or Game.BLACK
+	 * @param suicideRule	<code>true</code> to remove the played stone's
+	 * chain if it is left without liberties, <code>false</code> to
+	 * reject such a move.
+	 * @return	<code>false</code> if the move is a suicide and
+	 * <code>suicideRule</code> is disabled.  The board is then left
+	 * unchanged and nothing is recorded.
+	 */
+	boolean makeMove(int index, char color, boolean suicideRule){
+		int mark = undoSize;
+		set(index, color);
+		char enemy = Game.invertColor(color);
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q != NONE && position[q] == enemy && isCaptured(q)){
+				pushChain(q);
+				removeChain(q);
+			}
+		}
+		int header = index << 2 | (color == Game.BLACK ? MOVE_BLACK : 0);
+		// A stone that captured something always has a liberty.
+		if(undoSize == mark && isCaptured(index)){
+			if(!suicideRule){
+				set(index, Game.EMPTY);
+				return false;
+			}
+			pushChain(index);
+			removeChain(index);
+			header |= MOVE_SUICIDE;
+		}
+		push(undoSize - mark);
+		push(header);
+		return true;
+	}
+
+	/**
+	 * Take back the last move recorded by <code>makeMove()</code>,
+	 * restoring any stones it removed.
+	 */
+	void unmakeMove(){
+		int header = undo[--undoSize];
+		int count = undo[--undoSize];
+		int index = header >>> 2;
+		char color = (header & MOVE_BLACK) != 0 ? Game.BLACK : Game.WHITE;
+		boolean suicide = (header & MOVE_SUICIDE) != 0;
+		char removed = suicide ? color : Game.invertColor(color);
+		if(!suicide)
+			set(index, Game.EMPTY);
+		for(int i = 0; i < count; i++)
+			set(undo[--undoSize], removed);
+		if(suicide)
+			set(index, Game.EMPTY);
+	}
+
+	/**
+	 * Returns the number of stones removed by the last recorded move.
+	 */
+	int getLastMoveCaptures(){
+		return undo[undoSize-2];
+	}
+
+	/**
+	 * Returns the index of the <code>i</code>th stone removed by the
+	 * last recorded move.
+	 */
+	int getLastMoveCapture(int i){
+		return undo[undoSize-3-i];
+	}
+
+	/**
+	 * Check if the last recorded move removed its own chain.
+	 */
+	boolean isLastMoveSuicide(){
+		return (undo[undoSize-1] & MOVE_SUICIDE) != 0;
+	}
+
+	/**
+	 * Returns the point the opponent may not play on next under the
+	 * simple ko rule, after the last recorded move: the point of the
+	 * single stone it captured, if the stone played is now a chain of
+	 * its own with that point as its only liberty.
+	 * @return	Index of the point, or <code>NONE</code> if there is no
+	 * ko.
+	 */
+	int getLastMoveKoPoint(){
+		if(getLastMoveCaptures() != 1 || isLastMoveSuicide())
+			return NONE;
+		int index = undo[undoSize-1] >>> 2;
+		char color = position[index];
+		int liberty = NONE;
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q == NONE)
+				continue;
+			if(position[q] == color)
+				return NONE;
+			if(position[q] == Game.EMPTY){
+				if(liberty != NONE)
+					return NONE;
+				liberty = q;
+			}
+		}
+		return liberty;
+	}
+
+	/**
+	 * Forget all recorded moves, keeping the current position.
+	 */
+	void clearMoves(){
+		undoSize = 0;
+	}
+
+	/**
+	 * Push the indexes of all stones in the chain containing
+	 * <code>index</code> onto the undo stack.
+	 */
+	void pushChain(int index){
+		int head = chainHead[index];
+		int p = head;
+		do{
+			push(p);
+			p = chainNext[p];
+		}while(p != head);
+	}
+
+	final void push(int value){
+		if(undo == null)
+			undo = new int[position.length + 2];
+		else if(undoSize == undo.length)
+			undo = Arrays.copyOf(undo, undoSize * 2);
+		undo[undoSize++] = value;
+	}
+
+	/**
+	 * Returns the index of the point next to <code>index</code> in the
+	 * given direction.
+	 * @param index	Index of a point in the board's position.
+	 * @param direction	0 for left, 1 for right, 2 for top and 3 for
+	 * bottom.
+	 * @return	Index of the neighbouring point, or <code>NONE</code> if
+	 * it is out of bounds.
+	 */
+	int neighbour(int index, int direction){
+		switch(direction){
+		case 0:
+			return index % boardSize > 0 ? index - 1 : NONE;
+		case 1:
+			return index % boardSize < boardSize - 1 ? index + 1 : NONE;
+		case 2:
+			return index >= boardSize ? index - boardSize : NONE;
+		default:
+			return index < position.length - boardSize ? index + boardSize : NONE;
+		}
+	}
+
+	static boolean isStone(char color){
+		return color == Game.WHITE || color == Game.BLACK;
+	}
+
+	/**
+	 * Returns the 3x3 pattern around a point: the state of its eight
+	 * neighbours, including whether they are off the board, packed into
+	 * 16 bits.  Costs constant time; see <code>PatternWeights</code>.
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	Pattern code, from <code>0</code> to <code>0xFFFF</code>.
+	 */
+	public int getPattern(int x, int y){
+		return patterns[y * boardSize + x];
+	}
+
+	/**
+	 * Index-based version of <code>getPattern(int, int)</code>.
+	 */
+	int getPattern(int index){
+		return patterns[index];
+	}
+
+	static int patternCode(char color){
+		switch(color){
+		case Game.BLACK:
+			return PATTERN_BLACK;
+		case Game.WHITE:
+			return PATTERN_WHITE;
+		default:
+			return PATTERN_EMPTY;
+		}
+	}
+
+	/**
+	 * Compute the pattern of every point from the position.
+	 */
+	private void initPatterns(){
+		for(int p = 0; p < position.length; p++){
+			int x = p % boardSize;
+			int y = p / boardSize;
+			int pattern = 0;
+			for(int d = 0; d < 8; d++){
+				int nx = x + PATTERN_DX[d];
+				int ny = y + PATTERN_DY[d];
+				int code = nx < 0 || ny < 0 || nx >= boardSize || ny >= boardSize ?
+						PATTERN_EDGE : patternCode(position[ny * boardSize + nx]);
+				pattern |= code << 2 * d;
+			}
+			patterns[p] = (char) pattern;
+		}
+	}
+
+	/**
+	 * Update the patterns of the neighbours of <code>index</code>, whose
+	 * point is now <code>color</code>.
+	 */
+	final void updatePatterns(int index, char color){
+		int code = patternCode(color);
+		int x = index % boardSize;
+		int y = index / boardSize;
+		for(int d = 0; d < 8; d++){
+			int nx = x + PATTERN_DX[d];
+			int ny = y + PATTERN_DY[d];
+			if(nx < 0 || ny < 0 || nx >= boardSize || ny >= boardSize)
+				continue;
+			int p = ny * boardSize + nx;
+			// Seen from p, index lies in the opposite direction.
+			int shift = 2 * (7 - d);
+			patterns[p] = (char) (patterns[p] & ~(3 << shift) | code << shift);
+		}
+	}
+
+	private void initChains(){
+		chainHead = new int[position.length];
+		chainNext = new int[position.length];
+		chainSize = new int[position.length];
+		chainLibs = new int[position.length];
+		chainLibSum = new int[position.length];
+		chainLibSumSq = new long[position.length];
+		stack = new int[position.length];
+		members = new int[position.length];
+		rebuild();
+	}
+
+	/**
+	 * Recompute the chain representation from the position.
+	 */
+	void rebuild(){
+		Arrays.fill(chainHead, NONE);
+		for(int i = 0; i < position.length; i++){
+			if(isStone(position[i]) && chainHead[i] == NONE)
+				buildChain(i);
+		}
+	}
+
+	/**
+	 * Flood fill from <code>start</code> over stones of the same color
+	 * that are not yet part of a chain, linking them into a new chain.
+	 * Uses an explicit stack, so large groups cannot overflow the call
+	 * stack.
+	 */
+	private void buildChain(int start){
+		char color = position[start];
+		chainHead[start] = start;
+		chainNext[start] = start;
+		chainSize[start] = 1;
+		clearLiberties(start);
+		int top = 0;
+		stack[top++] = start;
+		while(top > 0){
+			int p = stack[--top];
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(p, d);
+				if(q != NONE && position[q] == Game.EMPTY)
+					addLiberty(start, q, 1);
+				else if(q != NONE && position[q] == color && chainHead[q] == NONE){
+					chainHead[q] = start;
+					chainNext[q] = chainNext[start];
+					chainNext[start] = q;
+					chainSize[start]++;
+					stack[top++] = q;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Dissolve the chain starting at <code>head</code> and rebuild it
+	 * from the stones that still remain on the board.  Called after one
+	 * or more of its stones have been removed, which may have split it.
+	 */
+	private void splitChain(int head){
+		int count = 0;
+		int p = head;
+		do{
+			members[count++] = p;
+			chainHead[p] = NONE;
+			p = chainNext[p];
+		}while(p != head);
+		for(int i = 0; i < count; i++){
+			int m = members[i];
+			if(isStone(position[m]) && chainHead[m] == NONE)
+				buildChain(m);
+		}
+	}
+
+	/**
+	 * Make the stone at <code>index</code> a chain of its own and merge
+	 * it with any neighbouring chains of the same color.
+	 */
+	private void joinChains(int index){
+		chainHead[index] = index;
+		chainNext[index] = index;
+		chainSize[index] = 1;
+		clearLiberties(index);
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q != NONE && position[q] == Game.EMPTY)
+				addLiberty(index, q, 1);
+		}
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q != NONE && position[q] == position[index] && chainHead[q] != chainHead[index])
+				mergeChains(chainHead[index], chainHead[q]);
+		}
+	}
+
+	/**
+	 * Merge two chains, relabelling the stones of the smaller one.
+	 */
+	private void mergeChains(int a, int b){
+		if(chainSize[a] < chainSize[b]){
+			int t = a;
+			a = b;
+			b = t;
+		}
+		int p = b;
+		do{
+			chainHead[p] = a;
+			p = chainNext[p];
+		}while(p != b);
+		// Splice the two circular lists together.
+		int next = chainNext[a];
+		chainNext[a] = chainNext[b];
+		chainNext[b] = next;
+		chainSize[a] += chainSize[b];
+		chainLibs[a] += chainLibs[b];
+		chainLibSum[a] += chainLibSum[b];
+		chainLibSumSq[a] += chainLibSumSq[b];
+	}
+
+	private void clearLiberties(int head){
+		chainLibs[head] = 0;
+		chainLibSum[head] = 0;
+		chainLibSumSq[head] = 0;
+	}
+
+	/**
+	 * Add (<code>sign</code> 1) or remove (<code>sign</code> -1) one
+	 * pseudo-liberty at <code>liberty</code> for the chain starting at
+	 * <code>head</code>.
+	 */
+	private void addLiberty(int head, int liberty, int sign){
+		chainLibs[head] += sign;
+		chainLibSum[head] += sign * liberty;
+		chainLibSumSq[head] += sign * (long) liberty * liberty;
+	}
+
+	/**
+	 * Recount the pseudo-liberties of the chain starting at
+	 * <code>head</code> from scratch.
+	 */
+	private void countLiberties(int head){
+		clearLiberties(head);
+		int p = head;
+		do{
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(p, d);
+				if(q != NONE && position[q] == Game.EMPTY)
+					addLiberty(head, q, 1);
+			}
+			p = chainNext[p];
+		}while(p != head);
+	}
+	
+	/**
+	 * Return the state (either white, black, empty, or out-of-bounds) of
+	 * the points to the top, left, right, and bottom of the provided x
+	 * and y coordinate.  
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	A four-element <code>Point</code> array.  Each Point
+	 * represents a surrounding state.
+	 * @see Point 
+	 */
+	public Point[] getSurrounding(int x, int y){
+		Point[] surrounding = {
+				// Left
+				new Point(x-1, y, getColor(x-1, y)),
+				// Right
+				new Point(x+1, y, getColor(x+1, y)),
+				// Top
+				new Point(x, y-1, getColor(x, y-1)),
+				// Bottom
+				new Point(x, y+1, getColor(x, y+1))
+		};
+		return surrounding;
+	}
+
+	/**
+	 * Return all <code>Point</code>s of the same color that are
+	 * immediately adjacent (i.e., not diagonal) to that stone or
+	 * recursively to other immediately adjacent stones.  
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	Set of <code>Point</code>.
+	 */
+	public HashSet<Point> getChain(int x, int y){ 
+		HashSet<Point> chain = new HashSet<Point>();
+		char color = getColor(x, y);
+		if(color != Game.WHITE && color != Game.BLACK){
+			return chain;
+		}
+		int head = chainHead[y * boardSize + x];
+		int p = head;
+		do{
+			chain.add(new Point(p % boardSize, p / boardSize, color));
+			p = chainNext[p];
+		}while(p != head);
+		return chain;
+	}
+
+	/**
+	 * Return the number of stones in the chain containing the stone at
+	 * location x, y.
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	Number of stones in the chain, <code>0</code> if the point
+	 * is empty.
+	 */
+	public int getChainSize(int x, int y){
+		int head = chainHead[y * boardSize + x];
+		return head != NONE ? chainSize[head] : 0;
+	}
+
+	/**
+	 * Determine if the stone at location x, y is captured.
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	<code>true</code> if captured, <code>false</code> if not.
+	 */
+	public boolean isCaptured(int x, int y){
+		// Raise an exception if the point in x, y is neither white nor black.
+		if(getColor(x, y) != Game.WHITE && getColor(x, y) != Game.BLACK){
+			// Exception
+			throw new IllegalPointException();
+		}
+
+		return isCaptured(y * boardSize + x);
+	}
+
+	/**
+	 * Index-based version of <code>isCaptured(int, int)</code>, without
+	 * checking that the point holds a stone.
+	 */
+	boolean isCaptured(int index){
+		return chainLibs[chainHead[index]] == 0;
+	}
+
+	/**
+	 * Check if a stone of <code>color</code> played on the empty point
+	 * at <code>index</code> would capture any stones.  Costs constant
+	 * time.
+	 */
+	boolean wouldCapture(int index, char color){
+		char enemy = Game.invertColor(color);
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q != NONE && position[q] == enemy && getAtariLiberty(q) == index)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Check if a stone of <code>color</code> played on the empty point
+	 * at <code>index</code> would be left without liberties, not
+	 * counting any it would gain by capturing.  Costs constant time.
+	 */
+	boolean wouldBeCaptured(int index, char color){
+		for(int d = 0; d < 4; d++){
+			int q = neighbour(index, d);
+			if(q == NONE)
+				continue;
+			if(position[q] == Game.EMPTY)
+				return false;
+			if(position[q] == color && getAtariLiberty(q) != index)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the only liberty of the chain containing the stone at
+	 * <code>index</code>, if it is in atari.  Costs constant time.
+	 * @param index	Index of a stone.
+	 * @return	Index of the liberty, or <code>NONE</code> if the chain
+	 * has no liberties or more than one.
+	 */
+	int getAtariLiberty(int index){
+		int head = chainHead[index];
+		int libs = chainLibs[head];
+		if(libs == 0)
+			return NONE;
+		// All pseudo-liberties are the same point exactly when the
+		// square of their sum is libs times the sum of their squares.
+		long sum = chainLibSum[head];
+		if(libs * chainLibSumSq[head] != sum * sum)
+			return NONE;
+		return (int) (sum / libs);
+	}
+
+	/**
+	 * Set the bits of the stones in the chain containing the stone at
+	 * <code>index</code> in <code>stones</code>, and the bits of its
+	 * liberties in <code>liberties</code>.  Bit <code>i % 64</code> of
+	 * word <code>i / 64</code> stands for the point with index
+	 * <code>i</code>.
+	 */
+	void markChain(int index, long[] stones, long[] liberties){
+		int head = chainHead[index];
+		int p = head;
+		do{
+			stones[p >>> 6] |= 1L << p;
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(p, d);
+				if(q != NONE && position[q] == Game.EMPTY)
+					liberties[q >>> 6] |= 1L << q;
+			}
+			p = chainNext[p];
+		}while(p != head);
+	}
+
+	/**
+	 * Return all of the liberties of a given chain.
+	 * @param x	x coordinate of any stone in the chain
+	 * @param y	y coordinate of any stone in the chain
+	 * @return	Set of <code>Point</code>s that are liberties. 
+	 */
+	public HashSet<Point> getChainLiberties(int x, int y){
+		HashSet<Point> liberties = new HashSet<Point>(); 
+		int head = chainHead[y * boardSize + x];
+		if(head == NONE)
+			return liberties;
+		int p = head;
+		do{
+			for(int d = 0; d < 4; d++){
+				int q = neighbour(p, d);
+				if(q != NONE && position[q] == Game.EMPTY)
+					liberties.add(new Point(q % boardSize, q / boardSize, Game.EMPTY));
+			}
+			p = chainNext[p];
+		}while(p != head);
+		return liberties;
+	}
+
+	/**
+	 * Make a deep copy of the board.
+	 * @return	Deep copy of the board. 
+	 */
+	public Board clone(){
+		return new Board(this);
+	}
+
+	/**
+	 * Print out to System a graphical representation of the board.
+	 */
+	public void print(){
+		StringBuilder sb = new StringBuilder();
+		StringBuilder nb = new StringBuilder();
+
+		for(int i = 0; i < boardSize; i++){
+			if(i > 0){
+				nb.append(String.format("%3s", Integer.toString(i)));
+			}else{
+				nb.append(String.format("%6s", Integer.toString(i)));
+			}
+		}
+
+		String n = nb.toString();
+		sb.append(n);
+		sb.append('\n');
+
+		for(int i = 0; i < this.position.length; i++){
+			if(i == 0){
+				sb.append(String.format("%3s", Integer.toString(0)));
+				sb.append(' ');
+			}else if(i > 0 && i % this.boardSize == 0){
+				sb.append(' ');
+				sb.append(i / this.boardSize - 1);
+				sb.append('\n');
+				sb.append(String.format("%3s", Integer.toString(i / this.boardSize )));
+				sb.append(' ');
+			}
+			switch(this.position[i]){
+			case Game.EMPTY: sb.append("-+-");
+			break;
+			case Game.WHITE: sb.append("-0-");
+			break;
+			case Game.BLACK: sb.append("-X-");
+			break;
+			}
+		}
+
+		sb.append(' ');
+		sb.append(this.boardSize-1);
+		sb.append('\n');
+		sb.append(n);
+
+		System.out.println(sb.toString());
+	}
+
+}
+
+class BoardSizeException extends RuntimeException{
+	BoardSizeException(){ super(); }
+}
+
+class IllegalPointException extends RuntimeException{
+	IllegalPointException(){ super(); }
+}
\ No newline at end of file
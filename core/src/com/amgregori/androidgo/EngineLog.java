@@ -0,0 +1,58 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+/**
+ *
+ * Logging hook for the engine.  The engine does not depend on any
+ * logging library; the host application installs a <code>Logger</code>
+ * with <code>setLogger()</code>.  When none is installed, logging costs
+ * a single field read.
+ *
+ */
+public final class EngineLog {
+	/**
+	 * Receiver for the engine's log messages.
+	 */
+	public interface Logger {
+		void log(String tag, String message);
+	}
+
+	private static Logger logger;
+
+	private EngineLog(){}
+
+	/**
+	 * Install the logger that receives the engine's messages.
+	 * @param l	Logger, or <code>null</code> to disable logging.
+	 */
+	public static void setLogger(Logger l){
+		logger = l;
+	}
+
+	/**
+	 * Log a verbose message.  Callers should pass constant strings, so
+	 * that nothing is built when logging is disabled.
+	 * @param tag
+	 * @param message
+	 */
+	static void v(String tag, String message){
+		Logger l = logger;
+		if(l != null)
+			l.log(tag, message);
+	}
+}
@@ -0,0 +1,579 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+
+
+/**
+ * 
+ * Model of a Go game.  Validates moves, stores history.
+ *
+ */
+public class Game {
+	// Point constants.  Must be chars of positive integers.
+	public static final char WHITE = '0';
+	public static final char BLACK = '1';
+	public static final char EMPTY = '2';
+	public static final char OUT_OF_BOUNDS = '3';
+
+	// Rules constants.  Must be positive integers.
+	public static final int POSITIONAL = 0;
+	public static final int SITUATIONAL = 1;
+	public static final int JAPANESE = 2;
+	
+	// History step direction constants.  Must be int.
+	public static final int PREVIOUS = 0;
+	public static final int NEXT = 1;
+	public static final int FIRST = 2;
+	public static final int LAST = 3;
+
+	// Instance variables
+	private int koRule;
+	private boolean suicideRule;
+	private Board board;
+	private char nextTurn;
+	private History history;
+	private boolean running;
+	private Scorer scorer;
+	private LegalMoves legalMoves;
+
+	// Static methods.
+	public static char invertColor(char color){
+		return color == WHITE ? BLACK : color == BLACK ? WHITE : OUT_OF_BOUNDS;
+	}
+
+	// Constructors.
+	
+	/**
+	 * Constructor used internally to reconstruct game from a saved
+	 * state.
+	 * @param position
+	 * @param nextTurn
+	 * @param running
+	 * @param history
+	 * @param koRule
+	 * @param suicideRule
+	 */
+	protected Game(String position, char nextTurn, boolean running, History history, int koRule, boolean suicideRule){
+		this.board = new Board(position);
+		this.running = running;
+		this.nextTurn = nextTurn;
+
+		this.history = history;
+
+		this.koRule = koRule;
+		this.suicideRule = suicideRule;
+	}
+
+	/**
+	 * Constructs game with special rules.
+	 * @param koRule	Determines the game's ko rule. Either
+	 * <code>SITUATIONAL</code>, <code>POSITIONAL</code>, or
+	 * <code>JAPANESE</code>.
+	 *   
+	 * @param suicideRule	Switch to enable/disable suicide rule.  Use
+	 * <code>true</code> for enabled, <code>false</code> for disabled.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 * For example, a 19x19 board has a <code>boardSize</code> of 19.
+	 */
+	public Game(int koRule, boolean suicideRule, int boardSize){
+		this(koRule, suicideRule, new Board(boardSize));
+	}
+
+	/**
+	 * Constructs game with special rules, played on the given board.
+	 * This is how an alternative <code>Board</code> implementation, such
+	 * as <code>BitBoard</code>, is selected.
+	 * @param koRule	Determines the game's ko rule. Either
+	 * <code>SITUATIONAL</code>, <code>POSITIONAL</code>, or
+	 * <code>JAPANESE</code>.
+	 *   
+	 * @param suicideRule	Switch to enable/disable suicide rule.  Use
+	 * <code>true</code> for enabled, <code>false</code> for disabled.
+	 * @param board	Board holding the starting position.
+	 */
+	public Game(int koRule, boolean suicideRule, Board board){
+		this(koRule, suicideRule, board, BLACK);
+	}
+
+	/**
+	 * Constructs game with special rules, played on the given board,
+	 * with the given side to move first.  Used for games that start
+	 * from a setup position, such as handicap games.
+	 * @param koRule
+	 * @param suicideRule
+	 * @param board	Board holding the starting position.
+	 * @param firstTurn	Either <code>BLACK</code> or <code>WHITE</code>.
+	 */
+	Game(int koRule, boolean suicideRule, Board board, char firstTurn){
+		this.koRule = koRule;
+		this.suicideRule = suicideRule;
+
+		this.board = board;
+		this.nextTurn = firstTurn;
+		this.history = new History();
+		this.running = true;
+
+		Situation s = new Situation(this.board.toString(), nextTurn);
+		this.history.add(s, this.board);
+	}
+
+	/**
+	 * Constructs a game with positional superko, no suicide rule, and a
+	 * board size of 19x19.
+	 */
+	public Game(){
+		this(POSITIONAL, false, 19);
+	}
+
+	// Accessor & mutator methods.
+	
+	/**
+	 * Returns the position of the board.
+	 * @return	A character array representing the board's position.
+	 */
+	public char[] getPosition(){
+		return board.getPosition();
+	}
+
+	/**
+	 * Returns the size of the board.
+	 * @return	Number of vertical or horizontal lines.
+	 * For example, a 19x19 board will return 19.
+	 */
+	public int getBoardSize(){
+		return board.getBoardSize();
+	}
+
+	/**
+	 * Counts the number of stones captured in the last move for the
+	 * provided <code>color</code>.
+	 * @param color	Either <code>BLACK</code> or <code>WHITE</code>.
+	 * @return	Number of captured stones.
+	 */
+	public int getCapturedStones(char color){
+		return history.current().getCaptured(color);
+	}
+
+	/**
+	 * Returns the score of the current position, counting every stone
+	 * on the board as alive.
+	 * @param rule	Either <code>Scorer.AREA</code> or
+	 * <code>Scorer.TERRITORY</code>.
+	 * @param komi	Points added to white's score.
+	 * @return	Black's score minus white's score.  Positive if black
+	 * is ahead, negative if white is.
+	 */
+	public double getScore(int rule, double komi){
+		if(scorer == null)
+			scorer = new Scorer(board.getBoardSize());
+		scorer.count(board.getPosition());
+		return scorer.getScore(rule, komi, getCapturedStones(BLACK), getCapturedStones(WHITE));
+	}
+
+	/**
+	 * Sets a stone on the board, checking if the move is valid, and
+	 * performs any captures.
+	 * @param index	
+	 * @return The indexes of the points that changed in the board's
+	 * position, each once.  Empty if the move is illegal.
+	 */
+	public int[] setStone(int index){
+		return setStone(index % board.getBoardSize(), index / board.getBoardSize());
+	}
+	
+	private int[] setStone(int x, int y){
+		try{
+			checkRunning();
+			checkVacancy(x, y);
+			// Play on the live board and take the move back if it turns
+			// out to be illegal.
+			int index = y * board.getBoardSize() + x;
+			if(!board.makeMove(index, nextTurn, suicideRule))
+				throw new SuicideException();
+			try{
+				checkKo(index);
+			}catch(KoException ex){
+				board.unmakeMove();
+				throw ex;
+			}
+			Situation previous = history.current();
+			int capturedBlack = previous.getCaptured(BLACK);
+			int capturedWhite = previous.getCaptured(WHITE);
+			int captured = board.getLastMoveCaptures();
+			boolean suicide = board.isLastMoveSuicide();
+			if((nextTurn == BLACK) == suicide)
+				capturedBlack += captured;
+			else
+				capturedWhite += captured;
+			int[] removed = captured > 0 ? new int[captured] : Situation.NO_STONES;
+			// A suicided stone leaves its own point empty again, so it is
+			// not a change.
+			int[] changes = new int[suicide ? captured - 1 : captured + 1];
+			int count = 0;
+			if(!suicide)
+				changes[count++] = index;
+			for(int i = 0; i < captured; i++){
+				removed[i] = board.getLastMoveCapture(i);
+				if(removed[i] != index)
+					changes[count++] = removed[i];
+			}
+			int koPoint = board.getLastMoveKoPoint();
+			board.clearMoves();
+			nextTurn = invertColor(nextTurn);
+			Situation s = new Situation(nextTurn, capturedBlack, capturedWhite, board.getHash(), index, removed, suicide);
+			s.koPoint = koPoint;
+			history.add(s, board);
+			if(legalMoves != null)
+				legalMoves.update(index, removed);
+			return changes;
+		}catch(GameOverException ex) {
+			EngineLog.v("1", "Game over.  No more moves allowed.");
+		}catch(KoException ex) {
+			EngineLog.v("1", "Illegal move. Ko is violated.");
+		}catch(SuicideException ex){
+			EngineLog.v("1", "Illegal move. Suicide is not allowed.");			
+		}catch(PositionOccupiedException ex){
+			EngineLog.v("1", "Illegal move. Position is occupied.");			
+		}
+		return Situation.NO_STONES;
+	}
+
+	/**
+	 * Returns every legal move for the side to move, checking vacancy,
+	 * suicide and the game's ko rule.  The answer is kept up to date
+	 * from move to move, so asking again after each move only costs a
+	 * look at the points near the last one, plus the ko check.
+	 * @return	A bitset with one bit per point: bit <code>i % 64</code>
+	 * of word <code>i / 64</code> is set if a stone can be played on
+	 * the point with index <code>i</code>.  Empty if the game is over.
+	 */
+	public long[] getLegalMoves(){
+		int area = board.getBoardSize() * board.getBoardSize();
+		if(!running)
+			return new long[(area + 63) >>> 6];
+		return legalMoves().get(nextTurn).clone();
+	}
+
+	/**
+	 * Check if the side to move can play on a point, without playing
+	 * it.
+	 * @param index	Index of the point in the board's position.
+	 * @return	<code>true</code> if <code>setStone(index)</code> would
+	 * succeed, <code>false</code> if not.
+	 */
+	public boolean isLegal(int index){
+		return running && (legalMoves().get(nextTurn)[index >>> 6] & 1L << index) != 0;
+	}
+
+	private LegalMoves legalMoves(){
+		if(legalMoves == null)
+			legalMoves = new LegalMoves(board, history, koRule, suicideRule);
+		return legalMoves;
+	}
+
+	/**
+	 * Goes to a certain point in the game's history (either the previous,
+	 * next, first, or last moves).
+	 * 
+	 * @param direction	Either <code>PREVIOUS</code>, <code>NEXT</code>,
+	 * <code>FIRST</code>, or <code>LAST</code>.
+	 * @return The indexes of the points that changed in the board's
+	 * position, each once.
+	 */
+	public int[] stepHistory(int direction){
+		if(history.size() > 1){
+			int index = history.getIndex();
+			switch(direction){
+				case PREVIOUS:
+					index--;
+					break;
+				case NEXT:
+					index++;
+					break;
+				case FIRST:
+					index = 0;
+					break;
+				case LAST:
+					index = history.size() - 1;
+					break;
+			}
+			return seek(index);
+		}
+		return Situation.NO_STONES;
+	}
+
+	/**
+	 * Goes to the given move in the game's history.
+	 * 
+	 * @param move	Number of moves (including passes) from the start of
+	 * the game.  <code>0</code> is the start of the game.
+	 * @return The indexes of the points that changed in the board's
+	 * position, each once.  Empty if there is no such move.
+	 */
+	public int[] seek(int move){
+		if(move < 0 || move >= history.size())
+			return Situation.NO_STONES;
+		char[] position = board.getPosition();
+		// Only points played on or cleared in between can differ; keep
+		// their current state to tell which of them actually do.
+		int[] changes = history.touched(history.getIndex(), move, position.length);
+		char[] before = snapshot(changes);
+		Situation step = history.seek(move, board);
+		nextTurn = step.getTurn();
+		running = !history.checkGameOver();
+		return changed(changes, before);
+	}
+
+	/**
+	 * Returns the number of variations that could have been played
+	 * instead of the move that led to the current situation, counting
+	 * that move.  A variation starts whenever a different move is played
+	 * after stepping back through the history.
+	 * @return	Number of variations, <code>1</code> at the start of the
+	 * game.
+	 */
+	public int getVariationCount(){
+		return history.getVariationCount();
+	}
+
+	/**
+	 * Returns which variation led to the current situation.
+	 * @return	Number of the variation, <code>0</code> being the first
+	 * played.
+	 */
+	public int getVariation(){
+		return history.getVariation();
+	}
+
+	/**
+	 * Replaces the move that led to the current situation with another
+	 * variation.  The moves shown after it become those of the new
+	 * variation.
+	 * @param variation	Number of the variation, from <code>0</code> to
+	 * <code>getVariationCount() - 1</code>.
+	 * @return The indexes of the points that changed in the board's
+	 * position, each once.  Empty if there is no such variation.
+	 */
+	public int[] selectVariation(int variation){
+		Situation current = history.current();
+		Situation step = current.parent != null ? current.parent.childAt(variation) : null;
+		if(step == null || step == current)
+			return Situation.NO_STONES;
+		// Only the points either move played on or cleared can differ.
+		int[] changes = new int[current.getRemoved().length + step.getRemoved().length + 2];
+		int count = touched(current, changes, 0);
+		count = touched(step, changes, count);
+		changes = Arrays.copyOf(changes, count);
+		char[] before = snapshot(changes);
+		history.selectVariation(variation, board);
+		nextTurn = step.getTurn();
+		running = !history.checkGameOver();
+		return changed(changes, before);
+	}
+
+	private static int touched(Situation s, int[] points, int count){
+		if(s.getMove() != Situation.PASS)
+			count = add(points, count, s.getMove());
+		for(int p : s.getRemoved())
+			count = add(points, count, p);
+		return count;
+	}
+
+	private static int add(int[] points, int count, int point){
+		for(int i = 0; i < count; i++){
+			if(points[i] == point)
+				return count;
+		}
+		points[count] = point;
+		return count + 1;
+	}
+
+	/**
+	 * Returns the current state of the given points.
+	 */
+	private char[] snapshot(int[] points){
+		char[] position = board.getPosition();
+		char[] state = new char[points.length];
+		for(int i = 0; i < points.length; i++)
+			state[i] = position[points[i]];
+		return state;
+	}
+
+	/**
+	 * Keep the points whose state is no longer the one in
+	 * <code>before</code>, and look at the legal moves around them
+	 * again.
+	 * @param points	Points that may have changed.  Reused.
+	 * @param before	Their previous state, from <code>snapshot()</code>.
+	 * @return	The points that changed.
+	 */
+	private int[] changed(int[] points, char[] before){
+		char[] position = board.getPosition();
+		int count = 0;
+		for(int i = 0; i < points.length; i++){
+			if(position[points[i]] != before[i])
+				points[count++] = points[i];
+		}
+		if(count < points.length)
+			points = Arrays.copyOf(points, count);
+		if(legalMoves != null){
+			// Past a point, looking at every point is cheaper than
+			// walking the chains around each change.
+			if(count > position.length / 4)
+				legalMoves.refresh();
+			else
+				legalMoves.update(points);
+		}
+		return points;
+	}
+
+	/**
+	 * Returns the number of the move currently shown.
+	 * @return	Number of moves (including passes) from the start of
+	 * the game to the current situation.
+	 */
+	public int getMoveNumber(){
+		return history.getIndex();
+	}
+
+	/**
+	 * Returns the number of moves in the game's history.
+	 * @return	Number of moves (including passes) from the start of
+	 * the game to the last situation.
+	 */
+	public int getMoveCount(){
+		return history.size() - 1;
+	}
+	
+	// Other methods.
+
+	/**
+	 * Pass the current turn.
+	 */
+	public void passTurn(){
+		try{
+			checkRunning();
+			nextTurn = invertColor(nextTurn);
+			Situation previous = history.current();
+			Situation s = new Situation(nextTurn, previous.getCaptured(BLACK), previous.getCaptured(WHITE), board.getHash(), Situation.PASS, Situation.NO_STONES, false);
+			history.add(s, board);
+			if(legalMoves != null)
+				legalMoves.invalidate();
+			if(history.checkGameOver()){
+				running = false;
+				throw new GameOverException();				
+			}
+		}catch(GameOverException ex){
+			EngineLog.v("1", "Game over.  No more moves allowed.");
+		}
+	}
+
+	/**
+	 * Returns whose turn it is to move.
+	 * @return	Either <code>BLACK</code> or <code>WHITE</code>.
+	 */
+	public char getNextTurn(){
+		return nextTurn;
+	}
+
+	/**
+	 * Returns the game's ko rule.
+	 * @return	Either <code>SITUATIONAL</code>, <code>POSITIONAL</code>,
+	 * or <code>JAPANESE</code>.
+	 */
+	public int getKoRule(){
+		return koRule;
+	}
+
+	/**
+	 * Returns the game's suicide rule.
+	 * @return	<code>true</code> if suicide is allowed,
+	 * <code>false</code> if not.
+	 */
+	public boolean getSuicideRule(){
+		return suicideRule;
+	}
+
+	/**
+	 * Returns the game's history.
+	 * @return	The <code>History</code> of this game.
+	 */
+	History getHistory(){
+		return history;
+	}
+
+	/**
+	 * Check if game is not over.
+	 * @return	<code>true</code> if game is running, <code>false</code>
+	 * if game is over.
+	 */
+	public boolean isRunning(){
+		return running;
+	}
+
+	private void checkVacancy(int x, int y) throws PositionOccupiedException{
+		if(board.getColor(x, y) != EMPTY){
+			throw new PositionOccupiedException();
+		}
+	}
+
+	private void checkRunning() throws GameOverException{
+		if(!running)
+			throw new GameOverException();
+	}
+
+	private void checkKo(int index) throws KoException{
+		// Japanese ko
+		if(koRule == JAPANESE &&
+				index == history.current().getKoPoint()){
+			throw new KoException();
+		}
+		// Situational superko
+		if(koRule == SITUATIONAL &&
+				history.contains(board.getHash(), nextTurn)){
+			throw new KoException();
+		}
+		// Positional superko
+		if(koRule == POSITIONAL &&
+				history.containsPosition(board.getHash())){
+			throw new KoException();
+		}
+	}
+
+
+	// toString
+	
+	public String toString(){
+		return board.toString();
+	}
+
+}
+
+class KoException extends Exception{
+	KoException(){ super(); }
+}
+class SuicideException extends Exception{
+	SuicideException(){ super(); }	
+}
+class PositionOccupiedException extends Exception{
+	PositionOccupiedException(){ super(); }
+}
+class GameOverException extends Exception{
+	GameOverException(){ super(); }
+}
\ No newline at end of file
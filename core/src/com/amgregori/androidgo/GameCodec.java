@@ -0,0 +1,172 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ *
+ * Compact binary encoding of a <code>Game</code>, for saving it across
+ * activity restarts.  Only the rules, the starting position at 2 bits
+ * per point and the list of moves are stored; everything else (hashes,
+ * captures, keyframes, ko points) is rebuilt by replaying the moves.
+ * A game of a few hundred moves takes well under a kilobyte.
+ *
+ * Layout, after a version byte: board size, a byte of flags (ko rule,
+ * suicide rule, first turn), number of situations, index of the
+ * current situation, the starting position, and each move as index + 1
+ * (<code>0</code> for a pass).  Numbers are stored as unsigned varints
+ * of 7 bits per byte.
+ *
+ */
+final class GameCodec {
+	static final int VERSION = 1;
+
+	private static final int FLAG_SUICIDE = 4;
+	private static final int FLAG_WHITE_FIRST = 8;
+
+	private GameCodec(){}
+
+	/**
+	 * Encode the current line of <code>game</code>'s history, including
+	 * any moves after the one currently shown.  Other variations are
+	 * not stored.
+	 * @param game
+	 * @return	The encoded game.
+	 */
+	static byte[] encode(Game game){
+		History history = game.getHistory();
+		Situation start = history.get(0);
+		String position = start.getKeyframe();
+		ByteArrayOutputStream out = new ByteArrayOutputStream(16 + position.length() / 4 + history.size() * 2);
+		out.write(VERSION);
+		writeVarint(out, game.getBoardSize());
+		out.write(game.getKoRule()
+				| (game.getSuicideRule() ? FLAG_SUICIDE : 0)
+				| (start.getTurn() == Game.WHITE ? FLAG_WHITE_FIRST : 0));
+		writeVarint(out, history.size());
+		writeVarint(out, history.getIndex());
+		int packed = 0;
+		for(int i = 0; i < position.length(); i++){
+			packed |= pointCode(position.charAt(i)) << (2 * (i & 3));
+			if((i & 3) == 3 || i == position.length() - 1){
+				out.write(packed);
+				packed = 0;
+			}
+		}
+		for(int i = 1; i < history.size(); i++)
+			writeVarint(out, history.get(i).getMove() + 1);
+		return out.toByteArray();
+	}
+
+	/**
+	 * Rebuild a game from the output of <code>encode()</code>.
+	 * @param data	The encoded game.
+	 * @return	The game, at the situation that was current when it was
+	 * encoded.
+	 * @throws IOException	If <code>data</code> is not a valid encoding
+	 * of this version.
+	 */
+	static Game decode(byte[] data) throws IOException{
+		Reader in = new Reader(data);
+		if(in.readByte() != VERSION)
+			throw new IOException("Unsupported game encoding version");
+		int boardSize = in.readVarint();
+		int flags = in.readByte();
+		int size = in.readVarint();
+		int index = in.readVarint();
+		if(boardSize < 1 || (flags & 3) > Game.JAPANESE || size < 1 || index >= size)
+			throw new IOException("Invalid game header");
+		char[] position = new char[boardSize * boardSize];
+		for(int i = 0; i < position.length; i += 4){
+			int packed = in.readByte();
+			for(int j = i; j < Math.min(i + 4, position.length); j++)
+				position[j] = pointColor(packed >>> (2 * (j & 3)) & 3);
+		}
+		Game game = new Game(flags & 3, (flags & FLAG_SUICIDE) != 0,
+				new Board(new String(position)),
+				(flags & FLAG_WHITE_FIRST) != 0 ? Game.WHITE : Game.BLACK);
+		for(int i = 1; i < size; i++){
+			int move = in.readVarint() - 1;
+			if(move >= position.length)
+				throw new IOException("Move off the board");
+			if(move == Situation.PASS)
+				game.passTurn();
+			else
+				game.setStone(move);
+			if(game.getMoveCount() != i)
+				throw new IOException("Illegal move in encoded game");
+		}
+		// Seeking recomputes whether the game is over, which setStone()
+		// does not, so only seek when the game was not at its last move.
+		if(index != game.getMoveNumber())
+			game.seek(index);
+		return game;
+	}
+
+	private static int pointCode(char color){
+		return color == Game.BLACK ? 1 : color == Game.WHITE ? 2 : 0;
+	}
+
+	private static char pointColor(int code) throws IOException{
+		switch(code){
+		case 0:
+			return Game.EMPTY;
+		case 1:
+			return Game.BLACK;
+		case 2:
+			return Game.WHITE;
+		default:
+			throw new IOException("Invalid point");
+		}
+	}
+
+	private static void writeVarint(ByteArrayOutputStream out, int value){
+		while((value & ~0x7F) != 0){
+			out.write(value & 0x7F | 0x80);
+			value >>>= 7;
+		}
+		out.write(value);
+	}
+
+	private static final class Reader {
+		private final byte[] data;
+		private int position;
+
+		Reader(byte[] data){
+			this.data = data;
+		}
+
+		int readByte() throws IOException{
+			if(position == data.length)
+				throw new IOException("Truncated game encoding");
+			return data[position++] & 0xFF;
+		}
+
+		int readVarint() throws IOException{
+			int value = 0;
+			for(int shift = 0; shift < 32; shift += 7){
+				int b = readByte();
+				value |= (b & 0x7F) << shift;
+				if((b & 0x80) == 0)
+					return value;
+			}
+			throw new IOException("Invalid varint");
+		}
+	}
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ *
+ * Append-only journal of a game in progress, so that it can be
+ * recovered after the process is killed.  The file holds a snapshot of
+ * the game in <code>GameCodec</code>'s encoding followed by one
+ * fixed-size record per move or history step.  Every
+ * <code>COMPACT_INTERVAL</code> records the file is rewritten as a new
+ * snapshot.
+ *
+ * Calls only queue the work: a single background thread writes the
+ * records and syncs the file once for each batch of records it finds
+ * queued, so the calling thread never waits for the disk, except in
+ * <code>close()</code>.  Not
+ * thread-safe; call it from the thread that changes the game.
+ *
+ */
+public class GameJournal {
+	/**
+	 * Number of records after which the journal is compacted.
+	 */
+	public static final int COMPACT_INTERVAL = 256;
+
+	private static final int MAGIC = 0x41474a31;
+	private static final int HEADER_SIZE = 8;
+	private static final int RECORD_SIZE = 8;
+	private static final byte MOVE = 1;
+	private static final byte SEEK = 2;
+	private static final Object CLOSE = new Object();
+
+	private final File file;
+	private final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>();
+	private Thread writer;
+	private Game game;
+	private int lastMove;
+	private int records;
+
+	// Writer thread state.
+	private FileChannel channel;
+	private final ByteBuffer batch = ByteBuffer.allocate(64 * RECORD_SIZE);
+
+	/**
+	 * @param file	Journal file.  It is created or replaced when the
+	 * first game is started.
+	 */
+	public GameJournal(File file){
+		this.file = file;
+	}
+
+	/**
+	 * Start journaling <code>game</code>, replacing whatever the journal
+	 * held before with a snapshot of it.
+	 * @param game
+	 */
+	public void start(Game game){
+		this.game = game;
+		compact();
+	}
+
+	/**
+	 * Record the move just attempted with <code>setStone()</code> or
+	 * <code>passTurn()</code>.  Nothing is recorded if it failed.
+	 * @param game	The journaled game.
+	 */
+	public void recordMove(Game game){
+		if(game != this.game || game.getMoveNumber() == lastMove)
+			return;
+		record(MOVE, game.getHistory().current().getMove());
+	}
+
+	/**
+	 * Record a step through the game's history with
+	 * <code>stepHistory()</code> or <code>seek()</code>.
+	 * @param game	The journaled game.
+	 */
+	public void recordSeek(Game game){
+		if(game != this.game || game.getMoveNumber() == lastMove)
+			return;
+		record(SEEK, Situation.PASS);
+	}
+
+	/**
+	 * Record a switch to another variation with
+	 * <code>selectVariation()</code>.  Only the current line of the game
+	 * is journaled, so this starts a new snapshot.
+	 * @param game	The journaled game.
+	 */
+	public void recordVariation(Game game){
+		if(game != this.game)
+			return;
+		compact();
+	}
+
+	/**
+	 * Write any queued records and stop the background thread.  Blocks
+	 * until the thread has finished, so that a journal started after
+	 * this call never shares the queue or the file with it.
+	 */
+	public void close(){
+		if(writer != null){
+			queue.add(CLOSE);
+			boolean interrupted = false;
+			while(writer.isAlive()){
+				try{
+					writer.join();
+				}catch(InterruptedException ex){
+					interrupted = true;
+				}
+			}
+			if(interrupted)
+				Thread.currentThread().interrupt();
+		}
+		writer = null;
+		game = null;
+	}
+
+	private void record(byte type, int move){
+		lastMove = game.getMoveNumber();
+		if(++records >= COMPACT_INTERVAL){
+			compact();
+			return;
+		}
+		byte[] r = new byte[RECORD_SIZE];
+		r[0] = type;
+		r[2] = (byte) (move + 1 >>> 8);
+		r[3] = (byte) (move + 1);
+		r[4] = (byte) (lastMove >>> 24);
+		r[5] = (byte) (lastMove >>> 16);
+		r[6] = (byte) (lastMove >>> 8);
+		r[7] = (byte) lastMove;
+		r[1] = checksum(r);
+		submit(r);
+	}
+
+	private void compact(){
+		lastMove = game.getMoveNumber();
+		records = 0;
+		byte[] snapshot = GameCodec.encode(game);
+		ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + snapshot.length);
+		data.putInt(MAGIC).putInt(snapshot.length).put(snapshot);
+		submit(data);
+	}
+
+	private void submit(Object op){
+		if(writer == null){
+			writer = new Thread(new Runnable(){
+				@Override
+				public void run(){
+					write();
+				}
+			}, "GameJournal");
+			writer.setDaemon(true);
+			writer.start();
+		}
+		queue.add(op);
+	}
+
+	/**
+	 * Body of the writer thread.  Records are written in batches, with
+	 * one sync per batch; a snapshot replaces the file.
+	 */
+	private void write(){
+		while(true){
+			Object op;
+			try{
+				op = queue.take();
+			}catch(InterruptedException ex){
+				return;
+			}
+			try{
+				boolean synced = false;
+				while(op != null){
+					if(op == CLOSE){
+						flush();
+						if(channel != null)
+							channel.close();
+						return;
+					}
+					synced = apply(op);
+					op = queue.poll();
+				}
+				if(!synced)
+					flush();
+			}catch(IOException ex){
+				// Drop records until the next snapshot starts a new file.
+				EngineLog.v("1", "Journal write failed: " + ex.getMessage());
+				batch.clear();
+				if(channel != null){
+					try{
+						channel.close();
+					}catch(IOException ignored){
+					}
+				}
+				channel = null;
+			}
+		}
+	}
+
+	/**
+	 * @return	<code>true</code> if the op left nothing to sync.
+	 */
+	private boolean apply(Object op) throws IOException{
+		if(op instanceof byte[]){
+			if(batch.remaining() < RECORD_SIZE)
+				flush();
+			batch.put((byte[]) op);
+			return false;
+		}
+		// Write the snapshot to a new file and move it over the journal,
+		// so that a crash leaves either the old journal or the new one.
+		batch.clear();
+		if(channel != null)
+			channel.close();
+		File temp = new File(file.getPath() + ".tmp");
+		RandomAccessFile out = new RandomAccessFile(temp, "rw");
+		try{
+			out.setLength(0);
+			ByteBuffer data = (ByteBuffer) op;
+			data.flip();
+			while(data.hasRemaining())
+				out.getChannel().write(data);
+			out.getChannel().force(true);
+		}finally{
+			out.close();
+		}
+		if(!temp.renameTo(file))
+			throw new IOException("Cannot replace " + file);
+		RandomAccessFile journal = new RandomAccessFile(file, "rw");
+		channel = journal.getChannel();
+		channel.position(channel.size());
+		return true;
+	}
+
+	private void flush() throws IOException{
+		batch.flip();
+		if(channel != null && batch.hasRemaining()){
+			while(batch.hasRemaining())
+				channel.write(batch);
+			channel.force(false);
+		}
+		batch.clear();
+	}
+
+	/**
+	 * Rebuild the game held by a journal file.  Records after the first
+	 * damaged or incomplete one, e.g. one cut short by a crash, are
+	 * ignored.  Reads the disk; do not call from the UI thread.
+	 * @param file	Journal file.
+	 * @return	The game, or <code>null</code> if the file does not exist
+	 * or holds no valid snapshot.
+	 */
+	public static Game recover(File file){
+		byte[] data;
+		try{
+			RandomAccessFile in = new RandomAccessFile(file, "r");
+			try{
+				data = new byte[(int) in.length()];
+				in.readFully(data);
+			}finally{
+				in.close();
+			}
+		}catch(IOException ex){
+			return null;
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(data);
+		if(data.length < HEADER_SIZE || buffer.getInt() != MAGIC)
+			return null;
+		int length = buffer.getInt();
+		if(length < 0 || length > buffer.remaining())
+			return null;
+		byte[] snapshot = new byte[length];
+		buffer.get(snapshot);
+		Game game;
+		try{
+			game = GameCodec.decode(snapshot);
+		}catch(IOException ex){
+			return null;
+		}
+		byte[] r = new byte[RECORD_SIZE];
+		while(buffer.remaining() >= RECORD_SIZE){
+			buffer.get(r);
+			if(r[1] != checksum(r) || !replay(game, r))
+				break;
+		}
+		return game;
+	}
+
+	/**
+	 * Apply one record to <code>game</code>.
+	 * @return	<code>false</code> if the record does not fit the game.
+	 */
+	private static boolean replay(Game game, byte[] r){
+		int move = ((r[2] & 0xFF) << 8 | (r[3] & 0xFF)) - 1;
+		int index = (r[4] & 0xFF) << 24 | (r[5] & 0xFF) << 16 | (r[6] & 0xFF) << 8 | (r[7] & 0xFF);
+		if(r[0] == SEEK){
+			if(index > game.getMoveCount())
+				return false;
+			game.seek(index);
+			return true;
+		}
+		if(r[0] != MOVE || index < 1 || index - 1 > game.getMoveCount())
+			return false;
+		if(game.getMoveNumber() != index - 1)
+			game.seek(index - 1);
+		if(move == Situation.PASS)
+			game.passTurn();
+		else
+			game.setStone(move);
+		return game.getMoveNumber() == index;
+	}
+
+	private static byte checksum(byte[] r){
+		int sum = 0x5A;
+		for(int i = 0; i < RECORD_SIZE; i++){
+			if(i != 1)
+				sum = sum * 31 + r[i];
+		}
+		return (byte) sum;
+	}
+}
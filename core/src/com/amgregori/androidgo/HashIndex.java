@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+/**
+ *
+ * Open-addressed multiset of 64-bit hashes.  Uses linear probing with
+ * backward-shift deletion, so lookups, insertions and removals cost
+ * constant time on average and never allocate unless the table grows.
+ *
+ */
+class HashIndex {
+	private static final int MIN_CAPACITY = 16;
+
+	private long[] keys;
+	// Number of occurrences of each key.  0 marks a free slot.
+	private int[] counts;
+	private int mask;
+	private int size;
+
+	/**
+	 * Constructs an empty <code>HashIndex</code>.
+	 */
+	HashIndex(){
+		this(MIN_CAPACITY);
+	}
+
+	/**
+	 * Constructs an empty <code>HashIndex</code> able to hold
+	 * <code>expected</code> distinct keys without growing.
+	 * @param expected	Expected number of distinct keys.
+	 */
+	HashIndex(int expected){
+		int capacity = MIN_CAPACITY;
+		while(capacity < expected * 2)
+			capacity <<= 1;
+		keys = new long[capacity];
+		counts = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * Adds one occurrence of <code>key</code>.
+	 * @param key
+	 */
+	void add(long key){
+		int i = slot(key);
+		while(counts[i] != 0){
+			if(keys[i] == key){
+				counts[i]++;
+				return;
+			}
+			i = (i + 1) & mask;
+		}
+		keys[i] = key;
+		counts[i] = 1;
+		if(++size * 2 > keys.length)
+			grow();
+	}
+
+	/**
+	 * Removes one occurrence of <code>key</code>, if present.
+	 * @param key
+	 */
+	void remove(long key){
+		int i = find(key);
+		if(i < 0 || --counts[i] > 0)
+			return;
+
+		// Shift back any following entries that would no longer be
+		// reachable from their home slot.
+		int j = i;
+		while(true){
+			j = (j + 1) & mask;
+			if(counts[j] == 0)
+				break;
+			int home = slot(keys[j]);
+			if(i <= j ? (home <= i || home > j) : (home <= i && home > j)){
+				keys[i] = keys[j];
+				counts[i] = counts[j];
+				i = j;
+			}
+		}
+		counts[i] = 0;
+		size--;
+	}
+
+	/**
+	 * Check if at least one occurrence of <code>key</code> is present.
+	 * @param key
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	boolean contains(long key){
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Removes all keys.
+	 */
+	void clear(){
+		java.util.Arrays.fill(counts, 0);
+		size = 0;
+	}
+
+	private int find(long key){
+		int i = slot(key);
+		while(counts[i] != 0){
+			if(keys[i] == key)
+				return i;
+			i = (i + 1) & mask;
+		}
+		return -1;
+	}
+
+	private int slot(long key){
+		return (int) (key ^ (key >>> 32)) & mask;
+	}
+
+	private void grow(){
+		long[] oldKeys = keys;
+		int[] oldCounts = counts;
+		keys = new long[oldKeys.length * 2];
+		counts = new int[oldCounts.length * 2];
+		mask = keys.length - 1;
+		for(int j = 0; j < oldKeys.length; j++){
+			if(oldCounts[j] == 0)
+				continue;
+			int i = slot(oldKeys[j]);
+			while(counts[i] != 0)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			counts[i] = oldCounts[j];
+		}
+	}
+}
@@ -0,0 +1,382 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+
+/**
+ * 
+ * History of a Go game.  Most situations only store the move that led
+ * to them; every <code>KEYFRAME_INTERVAL</code> situations the full
+ * position is stored as well, so that any position can be rebuilt from
+ * at most that many moves.
+ * <p>
+ * The history is a tree of variations.  Playing a move after stepping
+ * back starts a new variation instead of discarding the moves after
+ * the current one.  Each situation links to its parent and children,
+ * so variations share the moves before them, and a new variation costs
+ * no more than the moves it adds.  Indexes refer to the current line:
+ * the path from the start of the game to the current situation, then
+ * on through the variation last played or selected at each situation.
+ *
+ */
+public class History {
+	/**
+	 * Number of situations between two keyframes.
+	 */
+	public static final int KEYFRAME_INTERVAL = 32;
+
+	// Situations of the current line.
+	private SituationList data;
+	private int cursor;
+	// Hashes of the situations and positions up to the cursor, i.e. on
+	// the path from the start of the game only.
+	private HashIndex situations;
+	private HashIndex positions;
+
+	/**
+	 * Constructs an empty <code>History</code>.
+	 */
+	public History(){
+		data = new SituationList();
+		cursor = 1;
+		situations = new HashIndex();
+		positions = new HashIndex();
+	}
+
+	/**
+	 * Constructor used internally to reconstruct a <code>History</code>
+	 * from a saved state.
+	 * 
+	 * @param data
+	 * @param cursor
+	 */
+	protected History(SituationList data, int cursor){
+		this.data = data;
+		this.cursor = cursor;
+		for(int i = 1; i < data.size(); i++)
+			data.get(i - 1).link(data.get(i));
+		this.situations = new HashIndex(data.size());
+		this.positions = new HashIndex(data.size());
+		for(int i = 0; i < Math.min(cursor, data.size()); i++)
+			index(data.get(i));
+	}
+
+	/**
+	 * Add a <code>Situation</code> to the history after the current
+	 * one.  If the current situation is not the last of the line, the
+	 * line continues through <code>s</code> from now on, and the
+	 * situations that followed stay in the tree as another variation.
+	 * If a variation with the same move already follows, it is selected
+	 * instead and <code>s</code> is dropped.  If a keyframe is due, the
+	 * position of <code>board</code> is stored in <code>s</code>.
+	 * @param s	<code>Situation</code> to be added.
+	 * @param board	<code>Board</code> holding the position of
+	 * <code>s</code>.
+	 */
+	public void add(Situation s, Board board){
+		// Situations past the cursor are not indexed, so dropping them
+		// from the line leaves the index untouched.
+		if(cursor < data.size())
+			data.removeRange(cursor, data.size());
+		Situation parent = data.isEmpty() ? null : data.get(data.size() - 1);
+		Situation known = parent != null ? parent.child(s.move) : null;
+		if(known != null){
+			s = known;
+		}else{
+			if(data.size() % KEYFRAME_INTERVAL == 0 && !s.isKeyframe())
+				s.position = board.toString();
+			if(parent != null)
+				parent.link(s);
+		}
+		if(parent != null)
+			parent.next = s;
+		enter(s);
+	}
+
+	/**
+	 * Returns the number of variations that could have been played
+	 * instead of the move that led to the current situation, counting
+	 * that move.
+	 * @return	Number of variations, <code>1</code> at the start of the
+	 * game.
+	 */
+	public int getVariationCount(){
+		return cursor > 1 ? data.get(cursor-2).children() : 1;
+	}
+
+	/**
+	 * Returns which of the variations counted by
+	 * <code>getVariationCount()</code> led to the current situation.
+	 * @return	Number of the variation, <code>0</code> being the first
+	 * played.
+	 */
+	public int getVariation(){
+		Situation s = current();
+		return s.parent != null ? s.parent.childIndex(s) : 0;
+	}
+
+	/**
+	 * Replace the move that led to the current situation with another
+	 * variation, and continue the line through it.
+	 * @param variation	Number of the variation, as counted by
+	 * <code>getVariationCount()</code>.
+	 * @param board	<code>Board</code> holding the current situation's
+	 * position.
+	 * @return	The situation reached, or <code>null</code> if there is
+	 * no such variation.
+	 */
+	public Situation selectVariation(int variation, Board board){
+		Situation current = current();
+		if(current.parent == null)
+			return variation == 0 ? current : null;
+		Situation s = current.parent.childAt(variation);
+		if(s == null)
+			return null;
+		if(s != current){
+			current.revert(board);
+			unindex(current);
+			data.removeRange(cursor-1, data.size());
+			current.parent.next = s;
+			s.apply(board);
+			enter(s);
+		}
+		return s;
+	}
+
+	/**
+	 * Move the cursor to <code>s</code>, which follows the current
+	 * situation, and extend the line through the variations last played
+	 * or selected after it.
+	 */
+	private void enter(Situation s){
+		data.add(s);
+		cursor = data.size();
+		index(s);
+		for(Situation n = s.next; n != null; n = n.next)
+			data.add(n);
+	}
+
+	/**
+	 * Go to the situation with the given index and update
+	 * <code>board</code> to its position.  The position is rebuilt from
+	 * whichever is closer, the current situation or the nearest keyframe
+	 * before the target.
+	 * @param index	Index of the situation, <code>0</code> being the
+	 * start of the game.
+	 * @param board	<code>Board</code> holding the current situation's
+	 * position.
+	 * @return	The situation, or <code>null</code> if there is none with
+	 * that index.
+	 */
+	public Situation seek(int index, Board board){
+		if(index < 0 || index >= data.size())
+			return null;
+		int current = cursor - 1;
+		int keyframe = index;
+		while(!data.get(keyframe).isKeyframe())
+			keyframe--;
+		if(index - keyframe < Math.abs(index - current)){
+			board.setPosition(data.get(keyframe).getKeyframe());
+			current = keyframe;
+		}
+		while(current < index)
+			data.get(++current).apply(board);
+		while(current > index)
+			data.get(current--).revert(board);
+
+		while(cursor > index + 1)
+			unindex(data.get(--cursor));
+		while(cursor < index + 1)
+			index(data.get(cursor++));
+		return data.get(index);
+	}
+
+	/**
+	 * Returns the points whose state may differ between two situations:
+	 * those played on or cleared by the moves in between.  Any point not
+	 * returned is the same in both positions.
+	 * @param from	Index of one situation.
+	 * @param to	Index of the other situation.
+	 * @param points	Number of points on the board.
+	 * @return	Indexes of the points, each once.
+	 */
+	int[] touched(int from, int to, int points){
+		int first = Math.max(Math.min(from, to), 0) + 1;
+		int last = Math.min(Math.max(from, to), data.size() - 1);
+		int[] touched = new int[points];
+		// Across many moves, most points end up touched anyway.
+		if(last - first >= points / 4){
+			for(int p = 0; p < points; p++)
+				touched[p] = p;
+			return touched;
+		}
+		long[] seen = new long[(points + 63) >>> 6];
+		int count = 0;
+		for(int i = first; i <= last; i++){
+			Situation s = data.get(i);
+			if(s.move == Situation.PASS)
+				continue;
+			if((seen[s.move >>> 6] & 1L << s.move) == 0){
+				seen[s.move >>> 6] |= 1L << s.move;
+				touched[count++] = s.move;
+			}
+			for(int p : s.removed){
+				if((seen[p >>> 6] & 1L << p) == 0){
+					seen[p >>> 6] |= 1L << p;
+					touched[count++] = p;
+				}
+			}
+			if(count == points)
+				break;
+		}
+		return Arrays.copyOf(touched, count);
+	}
+
+	/**
+	 * Go to the previous <code>Situation</code>.
+	 * @param board	<code>Board</code> to update.
+	 * @return	Previous <code>Situation</code> if there is one,
+	 * <code>null</code> otherwise.
+	 */
+	public Situation previous(Board board){
+		return seek(cursor-2, board);
+	}
+
+	/**
+	 * Go to the next <code>Situation</code>.
+	 * @param board	<code>Board</code> to update.
+	 * @return	Next <code>Situation</code> if there is one,
+	 * <code>null</code> otherwise.
+	 */
+	public Situation next(Board board){
+		return seek(cursor, board);
+	}
+
+	/**
+	 * Returns the current <code>Situation</code>.
+	 * @return	Current <code>Situation</code>
+	 */
+	public Situation current(){
+		return cursor > 0 ? data.get(cursor-1) : null;
+	}
+
+	/**
+	 * Returns the <code>Situation</code> with the given index.
+	 * @param index	Index of the situation, <code>0</code> being the
+	 * start of the game.
+	 * @return	The situation.
+	 */
+	Situation get(int index){
+		return data.get(index);
+	}
+
+	/**
+	 * Returns the index of the current <code>Situation</code>.
+	 * @return	Index of the current situation, <code>0</code> being the
+	 * start of the game.
+	 */
+	public int getIndex(){
+		return cursor - 1;
+	}
+
+	/**
+	 * Go to the first <code>Situation</code>.
+	 * @param board	<code>Board</code> to update.
+	 * @return	First <code>Situation</code>, <code>null</code> if the
+	 * history is empty.
+	 */
+	public Situation first(Board board){
+		return seek(0, board);
+	}
+
+	/**
+	 * Go to the last <code>Situation</code>.
+	 * @param board	<code>Board</code> to update.
+	 * @return	Last <code>Situation</code>, <code>null</code> if the
+	 * history is empty.
+	 */
+	public Situation last(Board board){
+		return seek(data.size()-1, board);
+	}
+
+	/**
+	 * Returns the size of the history.
+	 * @return	Number of elements in the history.
+	 */
+	public int size(){
+		return data.size();
+	}
+
+	/**
+	 * Check if history up to current move contains a given
+	 * <code>Situation</code>.  Situations are compared by their Zobrist
+	 * hash, so this costs constant time.
+	 * @param s
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	public boolean contains(Situation s){
+		return situations.contains(s.getHash());
+	}
+
+	/**
+	 * Check if history up to current move contains a situation with the
+	 * given position and turn.
+	 * @param positionHash	Zobrist hash of the position.
+	 * @param turn	Whose turn it is to move.
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	public boolean contains(long positionHash, char turn){
+		return situations.contains(Zobrist.situation(positionHash, turn));
+	}
+
+	/**
+	 * Check if history up to current move contains a given position,
+	 * regardless of whose turn it was.
+	 * @param positionHash	Zobrist hash of the position.
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	public boolean containsPosition(long positionHash){
+		return positions.contains(positionHash);
+	}
+	
+	/**
+	 * Checks to see if the game is over due to two passes.
+	 * @return	<code>true</code> if game is over, <code>false</code>
+	 * if not.
+	 */
+	public boolean checkGameOver(){
+		if(cursor >= 3){
+			long p1 = data.get(cursor-1).getPositionHash();
+			long p2 = data.get(cursor-2).getPositionHash();
+			long p3 = data.get(cursor-3).getPositionHash();
+			if(p1 == p2 && p2 == p3)
+				return true;
+		}
+		return false;
+	}
+
+	private void index(Situation s){
+		situations.add(s.getHash());
+		positions.add(s.getPositionHash());
+	}
+
+	private void unindex(Situation s){
+		situations.remove(s.getHash());
+		positions.remove(s.getPositionHash());
+	}
+}
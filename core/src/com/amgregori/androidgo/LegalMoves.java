@@ -0,0 +1,211 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Legal moves of a <code>Game</code>, as bitsets with one bit per
+ * point: bit <code>i % 64</code> of word <code>i / 64</code> stands for
+ * the point with index <code>i</code>.  For each color, keeps the empty
+ * points where a stone would not be a forbidden suicide, and after each
+ * move only looks again at the points whose answer may have changed.
+ * Ko is applied on top, once per situation, when the moves of the side
+ * to move are asked for.
+ *
+ */
+final class LegalMoves {
+	private final Board board;
+	private final History history;
+	private final int koRule;
+	private final boolean suicideRule;
+	private final int words;
+
+	// Empty points where a stone of each color is not a forbidden
+	// suicide.
+	private final long[] black;
+	private final long[] white;
+
+	// Legal moves of the side to move.  Valid until the next change.
+	private final long[] legal;
+	private char legalTurn;
+
+	// Work buffers for update().
+	private final long[] dirty;
+	private final long[] walked;
+
+	/**
+	 * @param board	The game's board.
+	 * @param history	The game's history, for the superko rules.
+	 * @param koRule	Either <code>Game.SITUATIONAL</code>,
+	 * <code>Game.POSITIONAL</code>, or <code>Game.JAPANESE</code>.
+	 * @param suicideRule	<code>true</code> if suicide is allowed.
+	 */
+	LegalMoves(Board board, History history, int koRule, boolean suicideRule){
+		this.board = board;
+		this.history = history;
+		this.koRule = koRule;
+		this.suicideRule = suicideRule;
+		words = (board.position.length + 63) >>> 6;
+		black = new long[words];
+		white = new long[words];
+		legal = new long[words];
+		dirty = new long[words];
+		walked = new long[words];
+		refresh();
+	}
+
+	/**
+	 * Look at every point again.  Used when the board changed in ways
+	 * that were not reported to <code>update()</code>.
+	 */
+	void refresh(){
+		for(int i = 0; i < board.position.length; i++)
+			updatePoint(i);
+		invalidate();
+	}
+
+	/**
+	 * Look again at the points that may have changed after a move: the
+	 * points that changed themselves, their empty neighbours, and the
+	 * liberties of every chain they belong to or touch, since those are
+	 * the only chains that can have gone into or out of atari.
+	 * @param index	Index of the stone played.
+	 * @param removed	Indexes of the stones it removed.
+	 */
+	void update(int index, int[] removed){
+		Arrays.fill(dirty, 0L);
+		Arrays.fill(walked, 0L);
+		touch(index);
+		for(int i = 0; i < removed.length; i++)
+			touch(removed[i]);
+		updateDirty();
+	}
+
+	/**
+	 * Look again at the points that may have changed after any number
+	 * of changes to the board, e.g. a jump through the history.  The
+	 * same points are looked at as for a single move.
+	 * @param changes	Indexes of the points whose state changed.
+	 */
+	void update(int[] changes){
+		Arrays.fill(dirty, 0L);
+		Arrays.fill(walked, 0L);
+		for(int i = 0; i < changes.length; i++)
+			touch(changes[i]);
+		updateDirty();
+	}
+
+	private void updateDirty(){
+		for(int w = 0; w < words; w++){
+			long v = dirty[w];
+			while(v != 0){
+				updatePoint((w << 6) + Long.numberOfTrailingZeros(v));
+				v &= v - 1;
+			}
+		}
+		invalidate();
+	}
+
+	/**
+	 * Forget the cached moves of the side to move, e.g. after a pass.
+	 */
+	void invalidate(){
+		legalTurn = Game.OUT_OF_BOUNDS;
+	}
+
+	/**
+	 * Returns the legal moves of <code>turn</code> in the current
+	 * situation.  The array is reused, so it must not be modified.
+	 * @param turn	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 */
+	long[] get(char turn){
+		if(legalTurn == turn)
+			return legal;
+		long[] playable = turn == Game.BLACK ? black : white;
+		for(int w = 0; w < words; w++){
+			long v = playable[w];
+			long moves = v;
+			while(v != 0){
+				int p = (w << 6) + Long.numberOfTrailingZeros(v);
+				if(isKo(p, turn))
+					moves &= ~(1L << p);
+				v &= v - 1;
+			}
+			legal[w] = moves;
+		}
+		legalTurn = turn;
+		return legal;
+	}
+
+	private void touch(int index){
+		mark(index);
+		for(int d = 0; d < 4; d++){
+			int q = board.neighbour(index, d);
+			if(q != Board.NONE)
+				mark(q);
+		}
+	}
+
+	private void mark(int index){
+		dirty[index >>> 6] |= 1L << index;
+		if(Board.isStone(board.position[index]) && (walked[index >>> 6] & 1L << index) == 0)
+			board.markChain(index, walked, dirty);
+	}
+
+	private void updatePoint(int index){
+		long bit = 1L << index;
+		if(isPlayable(index, Game.BLACK))
+			black[index >>> 6] |= bit;
+		else
+			black[index >>> 6] &= ~bit;
+		if(isPlayable(index, Game.WHITE))
+			white[index >>> 6] |= bit;
+		else
+			white[index >>> 6] &= ~bit;
+	}
+
+	private boolean isPlayable(int index, char color){
+		if(board.position[index] != Game.EMPTY)
+			return false;
+		return suicideRule || !board.wouldBeCaptured(index, color) || board.wouldCapture(index, color);
+	}
+
+	/**
+	 * Check if playing on the empty point at <code>index</code> is
+	 * forbidden by the ko rule.  A stone that neither captures nor dies
+	 * only adds its own key to the hash; other moves are played and
+	 * taken back.
+	 */
+	private boolean isKo(int index, char color){
+		if(koRule == Game.JAPANESE)
+			return index == history.current().getKoPoint();
+		long hash;
+		if(board.wouldCapture(index, color) || board.wouldBeCaptured(index, color)){
+			board.makeMove(index, color, true);
+			hash = board.getHash();
+			board.unmakeMove();
+		}else{
+			hash = board.getHash() ^ Zobrist.key(color, index);
+		}
+		if(koRule == Game.SITUATIONAL)
+			return history.contains(hash, color);
+		return history.containsPosition(hash);
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Table of weights of 3x3 patterns, as returned by
+ * <code>Board.getPattern()</code>, for picking moves at random with
+ * probability proportional to their weight.  Looking up a weight costs
+ * one array access, since the table holds an entry for every one of the
+ * 65536 pattern codes.
+ * <p>
+ * Patterns are usually written with <code>pattern(String)</code>, and
+ * stored with <code>set()</code>, which stores the pattern's rotations
+ * and reflections as well.
+ *
+ */
+public class PatternWeights {
+	/**
+	 * Number of pattern codes.
+	 */
+	public static final int PATTERNS = 1 << 16;
+
+	// Neighbour d of each rotation and reflection of a pattern, in the
+	// order of Board.PATTERN_DX and PATTERN_DY.
+	private static final int[][] SYMMETRIES = new int[8][8];
+
+	static{
+		for(int t = 0; t < 8; t++){
+			for(int d = 0; d < 8; d++){
+				int dx = Board.PATTERN_DX[d];
+				int dy = Board.PATTERN_DY[d];
+				if((t & 1) != 0)
+					dx = -dx;
+				if((t & 2) != 0)
+					dy = -dy;
+				if((t & 4) != 0){
+					int swap = dx;
+					dx = dy;
+					dy = swap;
+				}
+				SYMMETRIES[t][d] = neighbour(dx, dy);
+			}
+		}
+	}
+
+	private final int[] weights = new int[PATTERNS];
+
+	/**
+	 * Constructs a table giving every pattern the same weight.
+	 * @param defaultWeight	Weight of the patterns not set, not
+	 * negative.
+	 */
+	public PatternWeights(int defaultWeight){
+		if(defaultWeight < 0)
+			throw new IllegalArgumentException("Negative weight: " + defaultWeight);
+		Arrays.fill(weights, defaultWeight);
+	}
+
+	/**
+	 * Returns the code of a pattern written as text: the nine points of
+	 * the 3x3 square in reading order, <code>X</code> for black,
+	 * <code>O</code> for white, <code>.</code> for empty and
+	 * <code>#</code> for off the board.  Whitespace is skipped, and the
+	 * middle point is ignored.  For example, <code>"X.O ... ###"</code>
+	 * is a point on the edge, with a black stone up and to the left and a
+	 * white stone up and to the right.
+	 * @param text	The pattern.
+	 * @return	Pattern code.
+	 * @throws IllegalArgumentException	If the text does not hold nine
+	 * points.
+	 */
+	public static int pattern(String text){
+		int pattern = 0;
+		int cell = 0;
+		for(int i = 0; i < text.length(); i++){
+			char c = text.charAt(i);
+			if(Character.isWhitespace(c))
+				continue;
+			int code;
+			switch(c){
+			case 'X':
+				code = Board.PATTERN_BLACK;
+				break;
+			case 'O':
+				code = Board.PATTERN_WHITE;
+				break;
+			case '.':
+				code = Board.PATTERN_EMPTY;
+				break;
+			case '#':
+				code = Board.PATTERN_EDGE;
+				break;
+			default:
+				throw new IllegalArgumentException("Bad point in pattern: " + c);
+			}
+			if(cell == 4){
+				cell++;
+				continue;
+			}
+			if(cell > 8)
+				throw new IllegalArgumentException("Pattern longer than nine points: " + text);
+			pattern |= code << 2 * (cell < 4 ? cell : cell - 1);
+			cell++;
+		}
+		if(cell != 9)
+			throw new IllegalArgumentException("Pattern shorter than nine points: " + text);
+		return pattern;
+	}
+
+	/**
+	 * Returns a pattern with black and white swapped, for weighting a
+	 * pattern the same for either side to move.
+	 * @param pattern	Pattern code.
+	 * @return	Pattern code.
+	 */
+	public static int invert(int pattern){
+		// Swap the two bits of every stone; empty and edge stay put.
+		int stones = (pattern ^ pattern >>> 1) & 0x5555;
+		return pattern ^ (stones | stones << 1);
+	}
+
+	/**
+	 * Set the weight of a pattern and of each of its rotations and
+	 * reflections.
+	 * @param pattern	Pattern code.
+	 * @param weight	Weight, not negative.
+	 */
+	public void set(int pattern, int weight){
+		if(weight < 0)
+			throw new IllegalArgumentException("Negative weight: " + weight);
+		for(int[] symmetry : SYMMETRIES){
+			int transformed = 0;
+			for(int d = 0; d < 8; d++)
+				transformed |= (pattern >>> 2 * d & 3) << 2 * symmetry[d];
+			weights[transformed] = weight;
+		}
+	}
+
+	/**
+	 * Returns the weight of a pattern.
+	 * @param pattern	Pattern code.
+	 * @return	Weight.
+	 */
+	public int get(int pattern){
+		return weights[pattern];
+	}
+
+	/**
+	 * Returns the weight of the pattern around a point.
+	 * @param board
+	 * @param index	Index of the point.
+	 * @return	Weight.
+	 */
+	public int weight(Board board, int index){
+		return weights[board.getPattern(index)];
+	}
+
+	/**
+	 * Pick one of the given points at random, with probability
+	 * proportional to the weight of the pattern around it.  Allocates
+	 * nothing, so it may run in a playout's inner loop.
+	 * @param board
+	 * @param points	Indexes of the candidate points.
+	 * @param count	Number of candidates, at the start of
+	 * <code>points</code>.
+	 * @param r	Random number, at least <code>0</code> and less than
+	 * <code>1</code>.
+	 * @return	Position of the point picked in <code>points</code>, or
+	 * <code>-1</code> if every candidate weighs nothing.
+	 */
+	public int pick(Board board, int[] points, int count, double r){
+		long total = 0;
+		for(int i = 0; i < count; i++)
+			total += weights[board.getPattern(points[i])];
+		if(total == 0)
+			return -1;
+		long target = (long) (r * total);
+		for(int i = 0; i < count; i++){
+			target -= weights[board.getPattern(points[i])];
+			if(target < 0)
+				return i;
+		}
+		// Only reached through rounding, when r is nearly 1.
+		for(int i = count - 1; ; i--){
+			if(weights[board.getPattern(points[i])] > 0)
+				return i;
+		}
+	}
+
+	private static int neighbour(int dx, int dy){
+		for(int d = 0; d < 8; d++){
+			if(Board.PATTERN_DX[d] == dx && Board.PATTERN_DY[d] == dy)
+				return d;
+		}
+		throw new AssertionError();
+	}
+}
@@ -0,0 +1,398 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+/**
+ *
+ * Random playouts from the current situation of a <code>Game</code>.
+ * A playout plays random legal moves for both sides until both pass,
+ * then scores the final position.  The ko and suicide rules are the
+ * ones of the game, checked the same way as in
+ * <code>Game.setStone()</code>.
+ * <p>
+ * Moves are chosen uniformly at random among the legal moves, except
+ * that a side never fills one of its own eyes or plays a suicide, and
+ * captures the chain of the last stone played whenever it is in atari.
+ * A side passes when it has no other move left.
+ * <p>
+ * All buffers are allocated by the constructor, so <code>run()</code>
+ * can be called any number of times without allocating.  A
+ * <code>Playout</code> is not thread-safe; use one per thread.
+ *
+ */
+public class Playout {
+	private final int koRule;
+	private final boolean suicideRule;
+	private final int boardSize;
+	private final int maxMoves;
+
+	// Situation the playouts start from.
+	private final Board start;
+	private final char startTurn;
+	private final int startPasses;
+	private final int startKoPoint;
+
+	private final Board board;
+	private char turn;
+	private int lastMove;
+	private int passes;
+	private int koPoint;
+	private int moves;
+
+	// Hashes checked for superko: those of the game up to its current
+	// situation, followed by those added by the running playout.
+	private final HashIndex seen;
+	private final long[] played;
+	private int playedCount;
+
+	// Empty points in no particular order, and the slot of each point
+	// in empties.
+	private final int[] empties;
+	private final int[] slot;
+	private int emptyCount;
+
+	private final Scorer scorer;
+	private boolean captureBias = true;
+	private long seed;
+
+	/**
+	 * Constructs a <code>Playout</code> starting from the current
+	 * situation of <code>game</code>.  Later changes to the game do not
+	 * affect the playout.
+	 * @param game
+	 */
+	public Playout(Game game){
+		this.koRule = game.getKoRule();
+		this.suicideRule = game.getSuicideRule();
+		this.boardSize = game.getBoardSize();
+		int area = boardSize * boardSize;
+		// Random games rarely last longer than this; the limit only
+		// guards against endless cycles under rules without superko.
+		this.maxMoves = area * 3;
+
+		this.start = new Board(game.toString());
+		this.board = new Board(start);
+		this.startTurn = game.getNextTurn();
+
+		History history = game.getHistory();
+		int current = history.getIndex();
+		this.seen = new HashIndex(current + 1 + maxMoves);
+		this.played = new long[maxMoves];
+		for(int i = 0; i <= current; i++){
+			Situation s = history.get(i);
+			if(koRule == Game.SITUATIONAL)
+				seen.add(s.getHash());
+			else if(koRule == Game.POSITIONAL)
+				seen.add(s.getPositionHash());
+		}
+		this.startKoPoint = history.get(current).getKoPoint();
+		if(!game.isRunning())
+			this.startPasses = 2;
+		else if(current > 0 && history.get(current).getMove() == Situation.PASS)
+			this.startPasses = 1;
+		else
+			this.startPasses = 0;
+
+		this.empties = new int[area];
+		this.slot = new int[area];
+		this.scorer = new Scorer(boardSize);
+		setSeed(System.nanoTime());
+		reset();
+	}
+
+	/**
+	 * Seed the random number generator, so that playouts can be
+	 * repeated.
+	 * @param seed
+	 */
+	public void setSeed(long seed){
+		// xorshift must not start from zero.
+		this.seed = seed != 0 ? seed : 0x9E3779B97F4A7C15L;
+	}
+
+	/**
+	 * Enable or disable capturing the last stone played whenever it is
+	 * in atari.  Enabled by default.
+	 * @param captureBias	<code>true</code> to enable,
+	 * <code>false</code> to play uniformly random moves.
+	 */
+	public void setCaptureBias(boolean captureBias){
+		this.captureBias = captureBias;
+	}
+
+	/**
+	 * Play one random game to the end and score it.
+	 * @return	Black's area minus white's area, without komi.
+	 */
+	public int run(){
+		reset();
+		return finish();
+	}
+
+	/**
+	 * Go back to the situation the playouts start from.
+	 */
+	void reset(){
+		while(playedCount > 0)
+			seen.remove(played[--playedCount]);
+		board.copyFrom(start);
+		turn = startTurn;
+		lastMove = Situation.PASS;
+		passes = startPasses;
+		koPoint = startKoPoint;
+		moves = 0;
+		emptyCount = 0;
+		char[] position = board.getPosition();
+		for(int i = 0; i < position.length; i++){
+			if(position[i] == Game.EMPTY)
+				addEmpty(i);
+		}
+	}
+
+	/**
+	 * Play random moves from the current situation to the end of the
+	 * game and score it.
+	 * @return	Black's area minus white's area, without komi.
+	 */
+	int finish(){
+		while(!isOver())
+			advance(selectMove());
+		return score();
+	}
+
+	/**
+	 * Play a given move for the side to move.  Moves the random
+	 * playouts would not choose, such as suicides, are rejected too.
+	 * @param index	Index of the point, or <code>Situation.PASS</code>.
+	 * @return	<code>true</code> if the move was played.
+	 */
+	boolean playMove(int index){
+		if(index != Situation.PASS && !play(index))
+			return false;
+		advance(index);
+		return true;
+	}
+
+	/**
+	 * Store the moves the random playouts may choose in the current
+	 * situation into <code>moves</code>.  Passing is not included.
+	 * @param moves	Array at least as long as the board's area.
+	 * @return	Number of moves stored.
+	 */
+	int getCandidates(int[] moves){
+		int count = 0;
+		for(int i = 0; i < emptyCount; i++){
+			int p = empties[i];
+			if(!isEye(p) && isPlayable(p))
+				moves[count++] = p;
+		}
+		return count;
+	}
+
+	/**
+	 * Check if the game is over, either because both sides passed or
+	 * because the move limit was reached.
+	 */
+	boolean isOver(){
+		return passes >= 2 || moves >= maxMoves;
+	}
+
+	/**
+	 * Returns whose turn it is to move in the current situation.
+	 */
+	char getTurn(){
+		return turn;
+	}
+
+	/**
+	 * Returns the number of moves, passes included, played by the last
+	 * call to <code>run()</code>.
+	 */
+	public int getMoves(){
+		return moves;
+	}
+
+	/**
+	 * Returns the final position of the last call to
+	 * <code>run()</code>.  The array is reused by the next playout.
+	 */
+	public char[] getPosition(){
+		return board.getPosition();
+	}
+
+	private int selectMove(){
+		if(captureBias && lastMove != Situation.PASS && board.position[lastMove] == Game.invertColor(turn)){
+			int liberty = board.getAtariLiberty(lastMove);
+			if(liberty != Board.NONE && play(liberty))
+				return liberty;
+		}
+		// Draw from the points not tried yet, moving rejected points
+		// past the end of the range.
+		int candidates = emptyCount;
+		while(candidates > 0){
+			int i = nextInt(candidates);
+			int p = empties[i];
+			if(!isEye(p) && play(p))
+				return p;
+			swapEmpties(i, --candidates);
+		}
+		return Situation.PASS;
+	}
+
+	private void advance(int move){
+		lastMove = move;
+		passes = move == Situation.PASS ? passes + 1 : 0;
+		if(move == Situation.PASS)
+			koPoint = Situation.NO_KO;
+		turn = Game.invertColor(turn);
+		record();
+		moves++;
+	}
+
+	/**
+	 * Check if <code>play()</code> would accept a stone at
+	 * <code>index</code>, without playing it.  Costs constant time
+	 * unless the stone would capture.
+	 */
+	private boolean isPlayable(int index){
+		if(!board.wouldCapture(index, turn))
+			return !board.wouldBeCaptured(index, turn) && !isKo(index, board.getHash() ^ Zobrist.key(turn, index));
+		board.makeMove(index, turn, suicideRule);
+		boolean playable = !isKo(index, board.getHash());
+		board.unmakeMove();
+		return playable;
+	}
+
+	/**
+	 * Play a stone for the side to move, unless it would be illegal or
+	 * a suicide.  Moves that do not capture are checked before they are
+	 * played, so rejecting them costs nothing.
+	 * @return	<code>true</code> if the stone was played.
+	 */
+	private boolean play(int index){
+		if(!board.wouldCapture(index, turn)){
+			if(board.wouldBeCaptured(index, turn) || isKo(index, board.getHash() ^ Zobrist.key(turn, index)))
+				return false;
+			board.makeMove(index, turn, suicideRule);
+		}else{
+			// A capturing stone always has a liberty.
+			board.makeMove(index, turn, suicideRule);
+			if(isKo(index, board.getHash())){
+				board.unmakeMove();
+				return false;
+			}
+		}
+		koPoint = board.getLastMoveKoPoint();
+		removeEmpty(index);
+		for(int i = board.getLastMoveCaptures() - 1; i >= 0; i--)
+			addEmpty(board.getLastMoveCapture(i));
+		board.clearMoves();
+		return true;
+	}
+
+	// Same checks as Game.checkKo(), made before the turn changes.
+	// hash is the hash of the position after the move.
+	private boolean isKo(int index, long hash){
+		switch(koRule){
+		case Game.JAPANESE:
+			return index == koPoint;
+		case Game.SITUATIONAL:
+			return seen.contains(Zobrist.situation(hash, turn));
+		case Game.POSITIONAL:
+			return seen.contains(hash);
+		default:
+			return false;
+		}
+	}
+
+	// Same keys as History.add(), made after the turn changes.
+	private void record(){
+		long key;
+		if(koRule == Game.SITUATIONAL)
+			key = Zobrist.situation(board.getHash(), turn);
+		else if(koRule == Game.POSITIONAL)
+			key = board.getHash();
+		else
+			return;
+		seen.add(key);
+		played[playedCount++] = key;
+	}
+
+	/**
+	 * Check if the empty point at <code>index</code> is an eye of the
+	 * side to move: all of its neighbours are friendly stones, and the
+	 * enemy holds at most one of its diagonals (none on the edge).
+	 */
+	private boolean isEye(int index){
+		char[] position = board.position;
+		for(int d = 0; d < 4; d++){
+			int q = board.neighbour(index, d);
+			if(q != Board.NONE && position[q] != turn)
+				return false;
+		}
+		char enemy = Game.invertColor(turn);
+		int x = index % boardSize;
+		int y = index / boardSize;
+		int enemies = 0;
+		int offBoard = 0;
+		for(int dy = -1; dy <= 1; dy += 2){
+			for(int dx = -1; dx <= 1; dx += 2){
+				int qx = x + dx;
+				int qy = y + dy;
+				if(qx < 0 || qx >= boardSize || qy < 0 || qy >= boardSize)
+					offBoard++;
+				else if(position[qy * boardSize + qx] == enemy)
+					enemies++;
+			}
+		}
+		return enemies + (offBoard > 0 ? 1 : 0) < 2;
+	}
+
+	// Area score of the final position.
+	private int score(){
+		scorer.count(board.position);
+		return scorer.getArea(Game.BLACK) - scorer.getArea(Game.WHITE);
+	}
+
+	private void addEmpty(int index){
+		slot[index] = emptyCount;
+		empties[emptyCount++] = index;
+	}
+
+	private void removeEmpty(int index){
+		int last = empties[--emptyCount];
+		empties[slot[index]] = last;
+		slot[last] = slot[index];
+	}
+
+	private void swapEmpties(int i, int j){
+		int a = empties[i];
+		int b = empties[j];
+		empties[i] = b;
+		empties[j] = a;
+		slot[b] = i;
+		slot[a] = j;
+	}
+
+	// xorshift64* generator.
+	private int nextInt(int n){
+		seed ^= seed >>> 12;
+		seed ^= seed << 25;
+		seed ^= seed >>> 27;
+		return (int) (((seed * 0x2545F4914F6CDD1DL) >>> 33) * n >>> 31);
+	}
+}
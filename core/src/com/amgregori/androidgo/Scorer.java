@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Arrays;
+
+/**
+ *
+ * Counts the score of a position.  Every region of empty points
+ * bordered by stones of a single color is that color's territory;
+ * regions bordered by both colors belong to neither.  All stones on the
+ * board are taken to be alive, so dead stones must be captured before
+ * the game ends.
+ * <p>
+ * Each call to <code>count()</code> visits every point once and does
+ * not allocate, so it is cheap enough to call after every move.  A
+ * <code>Scorer</code> is not thread-safe.
+ *
+ */
+public class Scorer {
+	/**
+	 * Area (Chinese) counting: stones plus territory.
+	 */
+	public static final int AREA = 0;
+	/**
+	 * Territory (Japanese) counting: territory plus prisoners.
+	 */
+	public static final int TERRITORY = 1;
+
+	private static final int BLACK_BORDER = 1;
+	private static final int WHITE_BORDER = 2;
+
+	private final int boardSize;
+	// Points of the regions already counted are marked with the current
+	// epoch, so that the marks never need clearing.
+	private final int[] mark;
+	private int epoch;
+	private final int[] stack;
+	private int stackSize;
+
+	private int blackStones;
+	private int whiteStones;
+	private int blackTerritory;
+	private int whiteTerritory;
+
+	/**
+	 * Constructs a <code>Scorer</code> for boards of one size.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 */
+	public Scorer(int boardSize){
+		this.boardSize = boardSize;
+		this.mark = new int[boardSize * boardSize];
+		this.stack = new int[boardSize * boardSize];
+	}
+
+	/**
+	 * Count the stones and territory of both colors in
+	 * <code>position</code>.
+	 * @param position	Board position as returned by
+	 * <code>Board.getPosition()</code>.
+	 */
+	public void count(char[] position){
+		if(position.length != mark.length)
+			throw new IllegalArgumentException("Position has " + position.length + " points, expected " + mark.length);
+		if(++epoch == 0){
+			Arrays.fill(mark, 0);
+			epoch = 1;
+		}
+		blackStones = 0;
+		whiteStones = 0;
+		blackTerritory = 0;
+		whiteTerritory = 0;
+		for(int i = 0; i < position.length; i++){
+			char color = position[i];
+			if(color == Game.BLACK)
+				blackStones++;
+			else if(color == Game.WHITE)
+				whiteStones++;
+			else if(mark[i] != epoch)
+				countRegion(position, i);
+		}
+	}
+
+	/**
+	 * Returns the number of stones of one color counted by the last
+	 * call to <code>count()</code>.
+	 * @param color	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 */
+	public int getStones(char color){
+		return color == Game.BLACK ? blackStones : whiteStones;
+	}
+
+	/**
+	 * Returns the territory of one color counted by the last call to
+	 * <code>count()</code>.
+	 * @param color	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 */
+	public int getTerritory(char color){
+		return color == Game.BLACK ? blackTerritory : whiteTerritory;
+	}
+
+	/**
+	 * Returns the area (stones plus territory) of one color counted by
+	 * the last call to <code>count()</code>.
+	 * @param color	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 */
+	public int getArea(char color){
+		return getStones(color) + getTerritory(color);
+	}
+
+	/**
+	 * Returns the result of the position counted by the last call to
+	 * <code>count()</code>.
+	 * @param rule	Either <code>AREA</code> or <code>TERRITORY</code>.
+	 * @param komi	Points added to white's score.
+	 * @param capturedBlack	Number of black stones captured so far.
+	 * Only used with territory counting.
+	 * @param capturedWhite	Number of white stones captured so far.
+	 * Only used with territory counting.
+	 * @return	Black's score minus white's score.  Positive if black
+	 * wins, negative if white wins.
+	 */
+	public double getScore(int rule, double komi, int capturedBlack, int capturedWhite){
+		if(rule == AREA)
+			return getArea(Game.BLACK) - getArea(Game.WHITE) - komi;
+		return blackTerritory + capturedWhite - whiteTerritory - capturedBlack - komi;
+	}
+
+	/**
+	 * Flood fill the empty region containing <code>start</code>, then
+	 * add its size to the territory of the color bordering it, if
+	 * there is only one.
+	 */
+	private void countRegion(char[] position, int start){
+		int size = 0;
+		int borders = 0;
+		mark[start] = epoch;
+		stack[stackSize++] = start;
+		while(stackSize > 0){
+			int p = stack[--stackSize];
+			size++;
+			int x = p % boardSize;
+			if(x > 0)
+				borders |= visit(position, p - 1);
+			if(x < boardSize - 1)
+				borders |= visit(position, p + 1);
+			if(p >= boardSize)
+				borders |= visit(position, p - boardSize);
+			if(p < position.length - boardSize)
+				borders |= visit(position, p + boardSize);
+		}
+		if(borders == BLACK_BORDER)
+			blackTerritory += size;
+		else if(borders == WHITE_BORDER)
+			whiteTerritory += size;
+	}
+
+	/**
+	 * Returns the border bit of the stone at <code>index</code>, or
+	 * pushes it onto the stack if it is an empty point not yet visited.
+	 */
+	private int visit(char[] position, int index){
+		char color = position[index];
+		if(color == Game.BLACK)
+			return BLACK_BORDER;
+		if(color == Game.WHITE)
+			return WHITE_BORDER;
+		if(mark[index] != epoch){
+			mark[index] = epoch;
+			stack[stackSize++] = index;
+		}
+		return 0;
+	}
+}
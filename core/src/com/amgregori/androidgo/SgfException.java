@@ -0,0 +1,33 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.IOException;
+
+/**
+ *
+ * Thrown when SGF input is malformed or describes a game that cannot be
+ * played.  Input that could be read but not understood throws this
+ * exception rather than a plain <code>IOException</code>, so callers can
+ * skip a bad game and carry on reading.
+ *
+ */
+public class SgfException extends IOException {
+	private static final long serialVersionUID = 1L;
+
+	SgfException(String message){ super(message); }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ *
+ * Reads games in the Smart Game Format (SGF).  The input is scanned a
+ * byte at a time from a fixed-size buffer and each move is played into
+ * a <code>Game</code> as soon as its node ends, so no tree of nodes or
+ * property strings is built and memory use does not grow with the size
+ * of the file.  A file may hold a whole collection of games; call
+ * <code>next()</code> until it returns <code>null</code>.
+ *
+ * Only the main line of each game is read; other variations are
+ * skipped.  Setup stones (<code>AB</code>, <code>AW</code>,
+ * <code>AE</code>) are only allowed in the root node.  Properties that
+ * do not affect the moves, such as comments, are skipped.
+ *
+ */
+public class SgfReader {
+	private static final int BUFFER_SIZE = 8192;
+	// Longest value kept for the properties that are read.  Points and
+	// board sizes are much shorter.
+	private static final int VALUE_SIZE = 16;
+	// Largest board a point can be written for, with the letters a-z
+	// and A-Z.
+	static final int MAX_SIZE = 52;
+
+	private static final int B = id("B");
+	private static final int W = id("W");
+	private static final int AB = id("AB");
+	private static final int AW = id("AW");
+	private static final int AE = id("AE");
+	private static final int SZ = id("SZ");
+	private static final int PL = id("PL");
+	private static final int UNKNOWN = -1;
+
+	// Move value of a pass.  Other moves and setup points are packed as
+	// y << 8 | x until the board size is known.
+	private static final int PASS = -1;
+
+	private final ReadableByteChannel channel;
+	private final ByteBuffer buffer;
+	private final byte[] bytes;
+	private int position;
+	private int limit;
+	private final byte[] value = new byte[VALUE_SIZE];
+	private int valueLength;
+
+	private final int koRule;
+	private final boolean suicideRule;
+
+	// Game being read.  Created when its root node ends.
+	private Game game;
+	private int node;
+	private int size;
+	private char firstTurn;
+	private int[] setup = new int[64];
+	private char[] setupColors = new char[64];
+	private int setupCount;
+	private char moveColor;
+	private int move;
+	// Nesting depth of the game tree being read.  Left above zero if
+	// reading it failed.
+	private int depth;
+
+	/**
+	 * Constructs a reader for games with positional superko and no
+	 * suicide.
+	 * @param in	Stream to read from.
+	 */
+	public SgfReader(InputStream in){
+		this(Channels.newChannel(in));
+	}
+
+	/**
+	 * Constructs a reader for games with positional superko and no
+	 * suicide.
+	 * @param channel	Channel to read from.
+	 */
+	public SgfReader(ReadableByteChannel channel){
+		this(channel, Game.POSITIONAL, false);
+	}
+
+	/**
+	 * Constructs a reader for games with special rules.  Every move in
+	 * the file must be legal under these rules.
+	 * @param channel	Channel to read from.
+	 * @param koRule	Either <code>Game.SITUATIONAL</code>,
+	 * <code>Game.POSITIONAL</code>, or <code>Game.JAPANESE</code>.
+	 * @param suicideRule	<code>true</code> if suicide is allowed.
+	 */
+	public SgfReader(ReadableByteChannel channel, int koRule, boolean suicideRule){
+		this.channel = channel;
+		this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+		this.bytes = buffer.array();
+		this.koRule = koRule;
+		this.suicideRule = suicideRule;
+	}
+
+	/**
+	 * Reads the next game of the collection.  If a move is made by the
+	 * side that is not to play, a pass is inserted before it.
+	 * After an illegal move, the rest of that game is skipped by the
+	 * next call, so the games that follow can still be read.
+	 * @return	The game, positioned at its last move, or
+	 * <code>null</code> if there are no more games.
+	 * @throws SgfException	If the input is not valid SGF or contains an
+	 * illegal move.
+	 * @throws IOException	If the input cannot be read.
+	 */
+	public Game next() throws IOException{
+		if(depth > 0)
+			skipTree();
+		int c = skipSpace();
+		// Anything before a game tree, such as a byte order mark, is
+		// ignored.
+		while(c != '(' && c != -1)
+			c = skipSpace();
+		if(c == -1)
+			return null;
+		readTree();
+		return game;
+	}
+
+	private void readTree() throws IOException{
+		game = null;
+		node = 0;
+		size = 19;
+		firstTurn = Game.BLACK;
+		setupCount = 0;
+		moveColor = Game.EMPTY;
+		// Any '(' seen here starts the first variation of the current
+		// node, which continues the main line; the variations after it
+		// are skipped when it ends.
+		depth = 1;
+		while(depth > 0){
+			int c = skipSpace();
+			if(c == ';'){
+				endNode();
+				node++;
+			}else if(c == '('){
+				depth++;
+			}else if(c == ')'){
+				depth--;
+				if(depth > 0)
+					skipVariations();
+			}else if(isLetter(c)){
+				readProperty(c);
+			}else if(c == -1){
+				throw endOfInput();
+			}else{
+				throw new SgfException("Unexpected character '" + (char) c + "'");
+			}
+		}
+		endNode();
+		if(game == null)
+			throw new SgfException("Empty game tree");
+	}
+
+	/**
+	 * Finish the current node: set up the board if it was the root
+	 * node, then play its move.
+	 */
+	private void endNode() throws IOException{
+		if(node == 0)
+			return;
+		if(game == null)
+			createGame();
+		if(moveColor == Game.EMPTY)
+			return;
+		if(moveColor != game.getNextTurn())
+			game.passTurn();
+		int before = game.getMoveCount();
+		if(move == PASS){
+			game.passTurn();
+		}else{
+			int x = move & 0xFF;
+			int y = move >>> 8;
+			if(x >= size || y >= size)
+				throw new SgfException("Move off the board in node " + node);
+			game.setStone(y * size + x);
+		}
+		if(game.getMoveCount() == before)
+			throw new SgfException("Illegal move in node " + node);
+		moveColor = Game.EMPTY;
+	}
+
+	private void createGame() throws IOException{
+		char[] position = new char[size * size];
+		Arrays.fill(position, Game.EMPTY);
+		for(int i = 0; i < setupCount; i++){
+			int x = setup[i] & 0xFF;
+			int y = setup[i] >>> 8;
+			if(x >= size || y >= size)
+				throw new SgfException("Setup stone off the board");
+			position[y * size + x] = setupColors[i];
+		}
+		game = new Game(koRule, suicideRule, new Board(new String(position)), firstTurn);
+	}
+
+	private void readProperty(int c) throws IOException{
+		int id = 0;
+		int letters = 0;
+		// Lowercase letters are allowed in old (FF[3]) identifiers and
+		// are not part of the property's name.
+		while(isLetter(c)){
+			if(c >= 'A' && c <= 'Z'){
+				id = id * 32 + c - 'A' + 1;
+				letters++;
+			}
+			c = read();
+		}
+		if(letters > 2)
+			id = UNKNOWN;
+		while(isSpace(c))
+			c = read();
+		if(c != '[')
+			throw new SgfException("Property without a value in node " + node);
+		do{
+			readValue(id);
+			c = skipSpace();
+		}while(c == '[');
+		unread(c);
+	}
+
+	private void readValue(int id) throws IOException{
+		boolean keep = id == B || id == W || id == AB || id == AW || id == AE || id == SZ || id == PL;
+		valueLength = 0;
+		boolean tooLong = false;
+		int c;
+		while((c = read()) != ']'){
+			if(c == '\\')
+				c = read();
+			if(c == -1)
+				throw endOfInput();
+			if(keep && valueLength == VALUE_SIZE)
+				tooLong = true;
+			else if(keep)
+				value[valueLength++] = (byte) c;
+		}
+		if(!keep)
+			return;
+		// Read to the end of the value first, so that the rest of the
+		// game can be skipped.
+		if(tooLong)
+			throw new SgfException("Property value too long in node " + node);
+		if(node == 0)
+			throw new SgfException("Property outside of a node");
+		if(id == B || id == W){
+			if(moveColor != Game.EMPTY)
+				throw new SgfException("Two moves in node " + node);
+			moveColor = id == B ? Game.BLACK : Game.WHITE;
+			move = isPass() ? PASS : point(0);
+			return;
+		}
+		if(game != null){
+			// The side to move follows from the moves after the root.
+			if(id == PL)
+				return;
+			throw new SgfException("Setup property outside the root node");
+		}
+		if(id == SZ){
+			size = number();
+			if(size < 1 || size > MAX_SIZE)
+				throw new SgfException("Unsupported board size");
+		}else if(id == PL){
+			char color = valueLength > 0 ? (char) (value[0] | 0x20) : ' ';
+			if(color != 'b' && color != 'w')
+				throw new SgfException("Invalid player");
+			firstTurn = color == 'b' ? Game.BLACK : Game.WHITE;
+		}else{
+			addSetup(id == AB ? Game.BLACK : id == AW ? Game.WHITE : Game.EMPTY);
+		}
+	}
+
+	/**
+	 * Add the point or rectangle of points in the current value to the
+	 * setup stones.
+	 */
+	private void addSetup(char color) throws IOException{
+		int from = point(0);
+		int to = from;
+		if(valueLength == 5 && value[2] == ':')
+			to = point(3);
+		else if(valueLength != 2)
+			throw new SgfException("Invalid point");
+		for(int y = from >>> 8; y <= to >>> 8; y++){
+			for(int x = from & 0xFF; x <= (to & 0xFF); x++){
+				if(setupCount == setup.length){
+					setup = Arrays.copyOf(setup, setupCount * 2);
+					setupColors = Arrays.copyOf(setupColors, setupCount * 2);
+				}
+				setup[setupCount] = y << 8 | x;
+				setupColors[setupCount++] = color;
+			}
+		}
+	}
+
+	private boolean isPass(){
+		return valueLength == 0 ||
+				(size <= 19 && valueLength == 2 && value[0] == 't' && value[1] == 't');
+	}
+
+	/**
+	 * Returns the point at <code>offset</code> in the current value,
+	 * packed as <code>y << 8 | x</code>.
+	 */
+	private int point(int offset) throws IOException{
+		if(valueLength < offset + 2)
+			throw new SgfException("Invalid point");
+		return coordinate(value[offset + 1]) << 8 | coordinate(value[offset]);
+	}
+
+	private static int coordinate(byte c) throws IOException{
+		if(c >= 'a' && c <= 'z')
+			return c - 'a';
+		if(c >= 'A' && c <= 'Z')
+			return c - 'A' + 26;
+		throw new SgfException("Invalid point");
+	}
+
+	private int number() throws IOException{
+		int n = 0;
+		for(int i = 0; i < valueLength; i++){
+			if(value[i] < '0' || value[i] > '9')
+				throw new SgfException("Invalid number");
+			n = n * 10 + value[i] - '0';
+		}
+		return n;
+	}
+
+	/**
+	 * Skip the variations that follow one that just ended.
+	 */
+	private void skipVariations() throws IOException{
+		int c;
+		while((c = skipSpace()) == '('){
+			int parent = depth;
+			depth++;
+			skipTree(parent);
+		}
+		unread(c);
+	}
+
+	/**
+	 * Skip the rest of the game tree being read.
+	 */
+	private void skipTree() throws IOException{
+		skipTree(0);
+	}
+
+	/**
+	 * Skip input until the tree is back at nesting depth
+	 * <code>to</code>.
+	 */
+	private void skipTree(int to) throws IOException{
+		while(depth > to){
+			int c = read();
+			if(c == '(')
+				depth++;
+			else if(c == ')')
+				depth--;
+			else if(c == '[')
+				readValue(UNKNOWN);
+			else if(c == -1)
+				throw endOfInput();
+		}
+	}
+
+	private int skipSpace() throws IOException{
+		int c;
+		do{
+			c = read();
+		}while(isSpace(c));
+		return c;
+	}
+
+	private int read() throws IOException{
+		if(position == limit && !fill())
+			return -1;
+		return bytes[position++] & 0xFF;
+	}
+
+	/**
+	 * Push back the byte just returned by <code>read()</code>.
+	 */
+	private void unread(int c){
+		if(c != -1)
+			position--;
+	}
+
+	private boolean fill() throws IOException{
+		buffer.clear();
+		int n;
+		do{
+			n = channel.read(buffer);
+		}while(n == 0);
+		if(n < 0)
+			return false;
+		position = 0;
+		limit = n;
+		return true;
+	}
+
+	/**
+	 * Returns the error for input that ends inside a game tree.  There
+	 * is nothing left to skip after it.
+	 */
+	private SgfException endOfInput(){
+		depth = 0;
+		return new SgfException("Unexpected end of input");
+	}
+
+	private static boolean isLetter(int c){
+		return (c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z');
+	}
+
+	private static boolean isSpace(int c){
+		return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+	}
+
+	private static int id(String name){
+		int id = 0;
+		for(int i = 0; i < name.length(); i++)
+			id = id * 32 + name.charAt(i) - 'A' + 1;
+		return id;
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ *
+ * Writes games in the Smart Game Format (SGF).  Each game is written
+ * as one game tree holding its starting position and every move in its
+ * history, so a collection is written by calling <code>write()</code>
+ * once per game.  Output is buffered; call <code>flush()</code> when
+ * done.
+ *
+ */
+public class SgfWriter {
+	private static final int BUFFER_SIZE = 8192;
+	// Moves per line.
+	private static final int LINE_MOVES = 10;
+
+	private final OutputStream out;
+	private final byte[] buffer = new byte[BUFFER_SIZE];
+	private int count;
+
+	/**
+	 * @param out	Stream to write to.
+	 */
+	public SgfWriter(OutputStream out){
+		this.out = out;
+	}
+
+	/**
+	 * @param channel	Channel to write to.
+	 */
+	public SgfWriter(WritableByteChannel channel){
+		this(Channels.newOutputStream(channel));
+	}
+
+	/**
+	 * Write the current line of a game's history, including any moves
+	 * after the one currently shown.  Other variations are left out.
+	 * The color of each move is the turn of the
+	 * situation before it.
+	 * @param game	Game to write.
+	 * @throws IOException	If the output cannot be written, or the
+	 * board is larger than 52x52.
+	 */
+	public void write(Game game) throws IOException{
+		History history = game.getHistory();
+		int size = game.getBoardSize();
+		if(size > SgfReader.MAX_SIZE)
+			throw new SgfException("Unsupported board size");
+		Situation start = history.get(0);
+		write("(;GM[1]FF[4]CA[UTF-8]SZ[" + size + "]");
+		writeSetup("AB", start.getKeyframe(), Game.BLACK, size);
+		writeSetup("AW", start.getKeyframe(), Game.WHITE, size);
+		if(start.getTurn() == Game.WHITE)
+			write("PL[W]");
+		for(int i = 1; i < history.size(); i++){
+			if(i % LINE_MOVES == 1)
+				write('\n');
+			write(';');
+			write(history.get(i - 1).getTurn() == Game.BLACK ? 'B' : 'W');
+			write('[');
+			int move = history.get(i).getMove();
+			if(move != Situation.PASS){
+				write(coordinate(move % size));
+				write(coordinate(move / size));
+			}
+			write(']');
+		}
+		write(")\n");
+	}
+
+	/**
+	 * Write any buffered output and flush the underlying stream.
+	 * @throws IOException
+	 */
+	public void flush() throws IOException{
+		out.write(buffer, 0, count);
+		count = 0;
+		out.flush();
+	}
+
+	private void writeSetup(String property, String position, char color, int size) throws IOException{
+		boolean first = true;
+		for(int i = 0; i < position.length(); i++){
+			if(position.charAt(i) != color)
+				continue;
+			if(first)
+				write(property);
+			first = false;
+			write('[');
+			write(coordinate(i % size));
+			write(coordinate(i / size));
+			write(']');
+		}
+	}
+
+	private static char coordinate(int c){
+		return (char) (c < 26 ? 'a' + c : 'A' + c - 26);
+	}
+
+	private void write(String s) throws IOException{
+		for(int i = 0; i < s.length(); i++)
+			write(s.charAt(i));
+	}
+
+	private void write(char c) throws IOException{
+		if(count == buffer.length){
+			out.write(buffer, 0, count);
+			count = 0;
+		}
+		buffer[count++] = (byte) c;
+	}
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+/**
+ * 
+ * Model for a Go game's situation. A <code>Situation</code> stores the
+ * move that led to it (the stone played and the stones it removed),
+ * information about who is to play, and a cumulative captures count. 
+ * Keyframe situations also store the full board position (i.e., the
+ * state of all board points), from which <code>History</code> rebuilds
+ * the positions of the situations that follow.  Situations are linked
+ * into <code>History</code>'s tree of variations.
+ *
+ */
+public class Situation {
+	/**
+	 * Value of <code>getMove()</code> for a pass, or for a situation
+	 * that was not reached by a move.
+	 */
+	public static final int PASS = -1;
+	/**
+	 * Value of <code>getKoPoint()</code> when no point is forbidden.
+	 */
+	public static final int NO_KO = Board.NONE;
+
+	static final int[] NO_STONES = new int[0];
+	
+	String position;
+	char turn;
+	// Cumulative number of captured stones of each color.
+	int capturedBlack;
+	int capturedWhite;
+	long positionHash;
+	int move;
+	int[] removed;
+	boolean suicide;
+	// Point the side to move may not play on under the simple ko rule.
+	int koPoint = NO_KO;
+
+	// Links of the tree of variations: the previous situation, the
+	// first of the situations that may follow, and the next situation
+	// that may follow the previous one instead.  next is the variation
+	// on the current line.
+	Situation parent;
+	Situation firstChild;
+	Situation sibling;
+	Situation next;
+
+	/**
+	 * Constructs a keyframe Situation with the given position and turn.
+	 * @param position	A String representing the state of all board
+	 * points. 
+	 * @param turn	Whose turn it is to move.
+	 */
+	public Situation(String position, char turn){
+		this(position, turn, 0, 0);
+	}
+
+	/**
+	 * Constructs a keyframe Situation with the given position, turn, and
+	 * cumulative capture counts.
+	 * @param position	A String representing the state of all board
+	 * points. 
+	 * @param turn	Whose turn it is to move.
+	 * @param capturedBlack	Cumulative number of black stones captured.
+	 * @param capturedWhite	Cumulative number of white stones captured.
+	 */
+	protected Situation(String position, char turn, int capturedBlack, int capturedWhite){
+		this(position, turn, capturedBlack, capturedWhite, Zobrist.hash(position));
+	}
+
+	/**
+	 * Constructs a keyframe Situation with the given position, turn,
+	 * cumulative capture counts, and the already known hash of the
+	 * position.
+	 * @param position	A String representing the state of all board
+	 * points. 
+	 * @param turn	Whose turn it is to move.
+	 * @param capturedBlack	Cumulative number of black stones captured.
+	 * @param capturedWhite	Cumulative number of white stones captured.
+	 * @param positionHash	Zobrist hash of <code>position</code>, as
+	 * returned by <code>Board.getHash()</code>.
+	 */
+	protected Situation(String position, char turn, int capturedBlack, int capturedWhite, long positionHash){
+		this(turn, capturedBlack, capturedWhite, positionHash, PASS, NO_STONES, false);
+		this.position = position;
+	}
+
+	/**
+	 * Constructs a Situation from the move that led to it.
+	 * @param turn	Whose turn it is to move.
+	 * @param capturedBlack	Cumulative number of black stones captured.
+	 * @param capturedWhite	Cumulative number of white stones captured.
+	 * @param positionHash	Zobrist hash of the resulting position.
+	 * @param move	Index of the stone played, or <code>PASS</code>.
+	 * @param removed	Indexes of the stones removed by the move.
+	 * @param suicide	<code>true</code> if the removed stones are the
+	 * mover's own, <code>false</code> if they are the opponent's.
+	 */
+	protected Situation(char turn, int capturedBlack, int capturedWhite, long positionHash, int move, int[] removed, boolean suicide){
+		this.turn = turn;
+		this.capturedBlack = capturedBlack;
+		this.capturedWhite = capturedWhite;
+		this.positionHash = positionHash;
+		this.move = move;
+		this.removed = removed;
+		this.suicide = suicide;
+	}
+	
+	/**
+	 * Returns the position, the state of all board points, if this is a
+	 * keyframe. 
+	 * @return	String representation of the position, or
+	 * <code>null</code> if this situation only stores a move.
+	 */
+	public String getKeyframe(){
+		return position;
+	}
+
+	/**
+	 * Check if this situation stores the full board position.
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	public boolean isKeyframe(){
+		return position != null;
+	}
+	
+	/**
+	 * Returns whose turn it is to move. 
+	 * @return	Color of whose turn it is to move
+	 */
+	public char getTurn(){
+		return turn;
+	}
+
+	/**
+	 * Returns the index of the stone played to reach this situation.
+	 * @return	Index of the stone, or <code>PASS</code>.
+	 */
+	public int getMove(){
+		return move;
+	}
+	
+	/**
+	 * Returns the point the side to move may not play on under the
+	 * simple ko rule: the point of a single stone just captured by a
+	 * single stone that could be recaptured at once.
+	 * @return	Index of the point, or <code>NO_KO</code>.
+	 */
+	public int getKoPoint(){
+		return koPoint;
+	}
+
+	/**
+	 * Returns the indexes of the stones removed by the move that led to
+	 * this situation.
+	 * @return	Array of indexes, not to be modified.
+	 */
+	int[] getRemoved(){
+		return removed;
+	}
+
+	/**
+	 * Check if the move that led to this situation removed the mover's
+	 * own stones.
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	boolean isSuicide(){
+		return suicide;
+	}
+	
+	/**
+	 * Returns the cumulative number of captured stones of one color.
+	 * @param color	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 * @return	Number of captured stones.
+	 */
+	public int getCaptured(char color){
+		return color == Game.BLACK ? capturedBlack : color == Game.WHITE ? capturedWhite : 0;
+	}
+
+	/**
+	 * Add <code>child</code> as the last of the variations that may
+	 * follow this situation, and continue the line through it.
+	 * @param child
+	 */
+	void link(Situation child){
+		child.parent = this;
+		if(firstChild == null){
+			firstChild = child;
+		}else{
+			Situation last = firstChild;
+			while(last.sibling != null)
+				last = last.sibling;
+			last.sibling = child;
+		}
+		next = child;
+	}
+
+	/**
+	 * Returns the variation that follows this situation with the given
+	 * move.
+	 * @param move	Index of the stone played, or <code>PASS</code>.
+	 * @return	The situation, or <code>null</code> if there is none.
+	 */
+	Situation child(int move){
+		for(Situation c = firstChild; c != null; c = c.sibling){
+			if(c.move == move)
+				return c;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the given variation of those that may follow this
+	 * situation, in the order they were first played.
+	 * @param variation	Number of the variation, <code>0</code> being
+	 * the first played.
+	 * @return	The situation, or <code>null</code> if there is none.
+	 */
+	Situation childAt(int variation){
+		Situation c = firstChild;
+		for(int i = 0; i < variation && c != null; i++)
+			c = c.sibling;
+		return variation >= 0 ? c : null;
+	}
+
+	/**
+	 * Returns the number of variations that may follow this situation.
+	 */
+	int children(){
+		int count = 0;
+		for(Situation c = firstChild; c != null; c = c.sibling)
+			count++;
+		return count;
+	}
+
+	/**
+	 * Returns the number of <code>child</code> among the variations that
+	 * may follow this situation, or <code>-1</code> if it is not one.
+	 */
+	int childIndex(Situation child){
+		int i = 0;
+		for(Situation c = firstChild; c != null; c = c.sibling, i++){
+			if(c == child)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Play the move that led to this situation on <code>board</code>,
+	 * which must hold the previous situation's position.
+	 * @param board
+	 */
+	void apply(Board board){
+		if(move == PASS)
+			return;
+		board.set(move, Game.invertColor(turn));
+		for(int p : removed)
+			board.set(p, Game.EMPTY);
+	}
+
+	/**
+	 * Take back the move that led to this situation on
+	 * <code>board</code>, which must hold this situation's position.
+	 * @param board
+	 */
+	void revert(Board board){
+		if(move == PASS)
+			return;
+		// Removed stones are the mover's own after a suicide, otherwise
+		// the opponent's, i.e., those of the player to move now.
+		char color = suicide ? Game.invertColor(turn) : turn;
+		if(!suicide)
+			board.set(move, Game.EMPTY);
+		for(int p : removed)
+			board.set(p, color);
+		if(suicide)
+			board.set(move, Game.EMPTY);
+	}
+
+	/**
+	 * Returns the Zobrist hash of the position, regardless of whose
+	 * turn it is.
+	 * @return	64-bit hash of the position.
+	 */
+	public long getPositionHash(){
+		return positionHash;
+	}
+
+	/**
+	 * Returns the Zobrist hash of the situation, i.e., of the position
+	 * together with whose turn it is.
+	 * @return	64-bit hash of the situation.
+	 */
+	public long getHash(){
+		return Zobrist.situation(positionHash, turn);
+	}
+
+	@Override
+	public int hashCode(){
+		long hash = getHash();
+		return (int) (hash ^ (hash >>> 32));
+	}
+	
+	/**
+	 * Two situations are equal if their positions hash alike and the
+	 * same player is to move.
+	 */
+	@Override
+	public boolean equals(Object other){
+		if(this == other){
+			return true;
+		}else if(other instanceof Situation &&
+				((Situation) other).getPositionHash() == positionHash &&
+				((Situation) other).getTurn() == turn){
+			return true;
+		}
+		return false;
+	}
+}
@@ -17,7 +17,6 @@
 package com.amgregori.androidgo;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 /**
  * 
@@ -0,0 +1,318 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+
+package com.amgregori.androidgo;
+
+/**
+ *
+ * Reads out whether a chain with one or two liberties can be captured,
+ * as in a ladder.  The attacker only ever plays on the chain's
+ * liberties; the defender extends from them or captures an attacking
+ * chain that is in atari next to it.  A chain that reaches three
+ * liberties escapes.
+ * <p>
+ * Moves are played on the given board with <code>makeMove()</code> and
+ * taken back with <code>unmakeMove()</code>, so reading allocates
+ * nothing and leaves the board as it was.  Reading stops after a
+ * number of moves (nodes) or plies, and then answers
+ * <code>UNKNOWN</code>.  Immediate ko recaptures are not played, and
+ * the ko point of the game itself is not known to the reader.  A
+ * <code>TacticalReader</code> is not thread-safe; use one per thread.
+ *
+ */
+public class TacticalReader {
+	/**
+	 * Result of reading: the chain is captured.
+	 */
+	public static final int CAPTURED = 0;
+	/**
+	 * Result of reading: the chain escapes.
+	 */
+	public static final int ESCAPES = 1;
+	/**
+	 * Result of reading: the budget ran out first.
+	 */
+	public static final int UNKNOWN = 2;
+
+	/**
+	 * Default limit of plies, enough for a ladder across a 19x19 board.
+	 */
+	public static final int DEFAULT_DEPTH = 100;
+	/**
+	 * Default limit of nodes.
+	 */
+	public static final int DEFAULT_NODES = 10000;
+
+	private final int maxDepth;
+	private final int maxNodes;
+
+	private Board board;
+	private int target;
+	private char attacker;
+	private char defender;
+	private int nodes;
+	private int move;
+	private char mover;
+
+	// Stones and liberties of the target, as bits.
+	private long[] stones;
+	private long[] liberties;
+	private int firstLiberty;
+	private int secondLiberty;
+	// Candidate moves of each ply.
+	private int[][] moves;
+
+	/**
+	 * Constructs a reader with the default limits.
+	 */
+	public TacticalReader(){
+		this(DEFAULT_DEPTH, DEFAULT_NODES);
+	}
+
+	/**
+	 * Constructs a reader.
+	 * @param maxDepth	Number of plies to read at most.
+	 * @param maxNodes	Number of moves to play at most per reading.
+	 * @throws IllegalArgumentException	If either limit is negative.
+	 */
+	public TacticalReader(int maxDepth, int maxNodes){
+		if(maxDepth < 0)
+			throw new IllegalArgumentException("Negative depth: " + maxDepth);
+		if(maxNodes < 0)
+			throw new IllegalArgumentException("Negative node budget: " + maxNodes);
+		this.maxDepth = maxDepth;
+		this.maxNodes = maxNodes;
+	}
+
+	/**
+	 * Read whether the chain containing the stone at x, y can be
+	 * captured if its opponent plays first.  The capturing move, if
+	 * any, is then returned by <code>getMove()</code>.
+	 * @param board	<code>Board</code> to read on, left unchanged.
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	<code>CAPTURED</code>, <code>ESCAPES</code> or
+	 * <code>UNKNOWN</code>.
+
+	 * @throws IllegalArgumentException	If there is no stone at x, y.
+	 */
+	public int readCapture(Board board, int x, int y){
+		start(board, x, y);
+		mover = attacker;
+		return attack(0, Board.NONE);
+	}
+
+	/**
+	 * Read whether the chain containing the stone at x, y can escape
+	 * if it plays first.  The escaping move, if one is needed, is then
+	 * returned by <code>getMove()</code>.
+	 * @param board	<code>Board</code> to read on, left unchanged.
+	 * @param x	x coordinate
+	 * @param y	y coordinate
+	 * @return	<code>CAPTURED</code>, <code>ESCAPES</code> or
+	 * <code>UNKNOWN</code>.
+
+	 * @throws IllegalArgumentException	If there is no stone at x, y.
+	 */
+	public int readEscape(Board board, int x, int y){
+		start(board, x, y);
+		mover = defender;
+		return defend(0, Board.NONE);
+	}
+
+	/**
+	 * Returns the move found by the last reading: the capturing move
+	 * after <code>readCapture()</code>, or the escaping move after
+	 * <code>readEscape()</code>.
+	 * @return	The move, or <code>null</code> if there is none, or if
+	 * the chain escapes without one.
+	 */
+	public Point getMove(){
+		if(move == Board.NONE)
+			return null;
+		return new Point(move % board.boardSize, move / board.boardSize, mover);
+	}
+
+	/**
+	 * Returns the number of moves played by the last reading.
+	 */
+	public int getNodes(){
+		return nodes;
+	}
+
+	private void start(Board board, int x, int y){
+		char color = board.getColor(x, y);
+		if(!Board.isStone(color))
+			throw new IllegalArgumentException("No stone at " + x + ", " + y);
+		int words = (board.position.length + 63) >>> 6;
+		if(stones == null || stones.length != words){
+			stones = new long[words];
+			liberties = new long[words];
+		}
+		// Boards of different sizes can share a word count.
+		if(moves == null || moves[0].length != board.position.length)
+			moves = new int[maxDepth + 1][board.position.length];
+		this.board = board;
+		this.target = y * board.boardSize + x;
+		this.defender = color;
+		this.attacker = Game.invertColor(color);
+		this.nodes = 0;
+		this.move = Board.NONE;
+	}
+
+	/**
+	 * Attacker to move.
+	 */
+	private int attack(int ply, int ko){
+		int count = countLiberties();
+		if(count == 1)
+			return capture(ply, ko);
+		if(count > 2)
+			return ESCAPES;
+		if(ply >= maxDepth)
+			return UNKNOWN;
+		int[] candidates = moves[ply];
+		candidates[0] = firstLiberty;
+		candidates[1] = secondLiberty;
+		int result = ESCAPES;
+		for(int i = 0; i < 2; i++){
+			int m = candidates[i];
+			if(m == ko)
+				continue;
+			if(nodes >= maxNodes)
+				return UNKNOWN;
+			if(!board.makeMove(m, attacker, false))
+				continue;
+			nodes++;
+			int r = defend(ply + 1, board.getLastMoveKoPoint());
+			board.unmakeMove();
+			if(r == CAPTURED){
+				if(ply == 0)
+					move = m;
+				return CAPTURED;
+			}
+			if(r == UNKNOWN)
+				result = UNKNOWN;
+		}
+		return result;
+	}
+
+	/**
+	 * Attacker to move, with the target in atari.
+	 */
+	private int capture(int ply, int ko){
+		// Taking the ko back must wait a move, which is beyond reading.
+		if(firstLiberty == ko)
+			return UNKNOWN;
+		if(ply == 0)
+			move = firstLiberty;
+		return CAPTURED;
+	}
+
+	/**
+	 * Defender to move.
+	 */
+	private int defend(int ply, int ko){
+		if(board.position[target] != defender)
+			return CAPTURED;
+		int count = countLiberties();
+		if(count > 2)
+			return ESCAPES;
+		if(ply >= maxDepth)
+			return UNKNOWN;
+		int[] candidates = moves[ply];
+		int size = 0;
+		// Captures first: they usually gain the most liberties.
+		for(int w = 0; w < stones.length; w++){
+			for(long bits = stones[w]; bits != 0; bits &= bits - 1){
+				int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+				for(int d = 0; d < 4; d++){
+					int q = board.neighbour(p, d);
+					if(q != Board.NONE && board.position[q] == attacker)
+						size = addCandidate(candidates, size, board.getAtariLiberty(q));
+				}
+			}
+		}
+		size = addCandidate(candidates, size, firstLiberty);
+		if(count == 2)
+			size = addCandidate(candidates, size, secondLiberty);
+
+		int result = CAPTURED;
+		if(count == 2){
+			// With two liberties, the defender may also play elsewhere.
+			result = attack(ply + 1, Board.NONE);
+			if(result == ESCAPES)
+				return ESCAPES;
+		}
+		for(int i = 0; i < size; i++){
+			int m = candidates[i];
+			if(m == ko)
+				continue;
+			if(nodes >= maxNodes)
+				return UNKNOWN;
+			if(!board.makeMove(m, defender, false))
+				continue;
+			nodes++;
+			int r = attack(ply + 1, board.getLastMoveKoPoint());
+			board.unmakeMove();
+			if(r == ESCAPES){
+				if(ply == 0)
+					move = m;
+				return ESCAPES;
+			}
+			if(r == UNKNOWN)
+				result = UNKNOWN;
+		}
+		return result;
+	}
+
+	private static int addCandidate(int[] candidates, int size, int m){
+		if(m == Board.NONE)
+			return size;
+		for(int i = 0; i < size; i++){
+			if(candidates[i] == m)
+				return size;
+		}
+		candidates[size] = m;
+		return size + 1;
+	}
+
+	/**
+	 * Mark the stones and liberties of the target, and count its
+	 * liberties up to three.  The first two are kept in
+	 * <code>firstLiberty</code> and <code>secondLiberty</code>.
+	 */
+	private int countLiberties(){
+		for(int w = 0; w < stones.length; w++){
+			stones[w] = 0;
+			liberties[w] = 0;
+		}
+		board.markChain(target, stones, liberties);
+		int count = 0;
+		for(int w = 0; w < liberties.length && count < 3; w++){
+			for(long bits = liberties[w]; bits != 0 && count < 3; bits &= bits - 1){
+				int p = (w << 6) + Long.numberOfTrailingZeros(bits);
+				if(count == 0)
+					firstLiberty = p;
+				else if(count == 1)
+					secondLiberty = p;
+				count++;
+			}
+		}
+		return count;
+	}
+}
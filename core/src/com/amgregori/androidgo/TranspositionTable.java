@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *
+ * Fixed-size table of 64-bit values keyed by situation, shared by any
+ * number of search threads.  Entries live off the Java heap, in a
+ * direct <code>ByteBuffer</code>, so a large table adds nothing for the
+ * garbage collector to scan.
+ * <p>
+ * The table is lossy: a store may evict another entry, and a lookup may
+ * miss an entry that was stored.  It takes no locks.  Each entry is
+ * written as two words, the value and the value XORed with the key, and
+ * a lookup only accepts an entry whose words agree with its key.  An
+ * entry half-written by one thread while another reads it therefore
+ * reads as a miss, never as a wrong value.
+ * <p>
+ * Entries are grouped in buckets of four, one cache line each.  A
+ * store overwrites the entry with the same key, or else an empty entry,
+ * or else one picked by the key's top bits.
+ *
+ */
+public final class TranspositionTable {
+	/**
+	 * Largest memory budget, in bytes.
+	 */
+	public static final long MAX_BYTES = 1L << 30;
+
+	private static final int ENTRY_SIZE = 16;
+	private static final int BUCKET_ENTRIES = 4;
+	private static final int BUCKET_SIZE = ENTRY_SIZE * BUCKET_ENTRIES;
+	// Mixed into the check word, so that an empty entry (all zeros)
+	// only matches this one key instead of the common key 0.
+	private static final long SALT = 0x9E3779B97F4A7C15L;
+
+	// Counters are striped over threads, a cache line apart, so that
+	// threads do not contend for them.
+	private static final int STRIPES = 16;
+	private static final int STRIDE = 8;
+	private static final int HITS = 0;
+	private static final int MISSES = 1;
+	private static final int COLLISIONS = 2;
+
+	private final ByteBuffer table;
+	private final int bucketMask;
+	private final AtomicLongArray counters = new AtomicLongArray(STRIPES * STRIDE);
+
+	/**
+	 * Constructs an empty table.
+	 * @param bytes	Memory budget.  The table takes the largest power of
+	 * two of bytes that fits, from one bucket up to
+	 * <code>MAX_BYTES</code>.
+	 */
+	public TranspositionTable(long bytes){
+		long size = BUCKET_SIZE;
+		while(size * 2 <= Math.min(bytes, MAX_BYTES))
+			size *= 2;
+		table = ByteBuffer.allocateDirect((int) size).order(ByteOrder.nativeOrder());
+		bucketMask = (int) (size / BUCKET_SIZE) - 1;
+	}
+
+	/**
+	 * Returns the key of a situation: the position on
+	 * <code>board</code> with <code>turn</code> to move.
+	 * @param board
+	 * @param turn	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 * @return	64-bit key.
+	 */
+	public static long key(Board board, char turn){
+		return Zobrist.situation(board.getHash(), turn);
+	}
+
+	/**
+	 * Returns the number of entries the table holds.
+	 */
+	public int capacity(){
+		return (bucketMask + 1) * BUCKET_ENTRIES;
+	}
+
+	/**
+	 * Look up the value stored for <code>key</code>.
+	 * @param key	Key of the situation, from <code>key()</code>.
+	 * @param absent	Value to return if there is none.
+	 * @return	The value stored, or <code>absent</code>.
+	 */
+	public long get(long key, long absent){
+		int bucket = bucket(key);
+		for(int i = 0; i < BUCKET_ENTRIES; i++){
+			int entry = bucket + i * ENTRY_SIZE;
+			long value = table.getLong(entry + 8);
+			if((table.getLong(entry) ^ value ^ SALT) == key){
+				count(HITS);
+				return value;
+			}
+		}
+		count(MISSES);
+		return absent;
+	}
+
+	/**
+	 * Store a value for <code>key</code>, replacing any value stored
+	 * for it before.
+	 * @param key	Key of the situation, from <code>key()</code>.
+	 * @param value
+	 */
+	public void put(long key, long value){
+		int bucket = bucket(key);
+		int victim = bucket + (int) (key >>> 62) * ENTRY_SIZE;
+		boolean found = false;
+		for(int i = 0; i < BUCKET_ENTRIES; i++){
+			int entry = bucket + i * ENTRY_SIZE;
+			long check = table.getLong(entry);
+			long stored = table.getLong(entry + 8);
+			if((check ^ stored ^ SALT) == key){
+				victim = entry;
+				found = true;
+				break;
+			}
+			if(check == 0 && stored == 0){
+				victim = entry;
+				found = true;
+			}
+		}
+		if(!found)
+			count(COLLISIONS);
+		table.putLong(victim, key ^ value ^ SALT);
+		table.putLong(victim + 8, value);
+	}
+
+	/**
+	 * Empty the table and reset the counters.  Not to be called while
+	 * other threads use the table.
+	 */
+	public void clear(){
+		for(int i = 0; i < table.capacity(); i += 8)
+			table.putLong(i, 0L);
+		for(int i = 0; i < counters.length(); i++)
+			counters.set(i, 0L);
+	}
+
+	/**
+	 * Returns the number of lookups that found a value.
+	 */
+	public long getHits(){
+		return sum(HITS);
+	}
+
+	/**
+	 * Returns the number of lookups that found no value.
+	 */
+	public long getMisses(){
+		return sum(MISSES);
+	}
+
+	/**
+	 * Returns the number of stores that evicted the value of another
+	 * key.
+	 */
+	public long getCollisions(){
+		return sum(COLLISIONS);
+	}
+
+	private int bucket(long key){
+		return ((int) key & bucketMask) * BUCKET_SIZE;
+	}
+
+	private void count(int counter){
+		int stripe = (int) Thread.currentThread().getId() & (STRIPES - 1);
+		counters.incrementAndGet(stripe * STRIDE + counter);
+	}
+
+	private long sum(int counter){
+		long total = 0;
+		for(int i = 0; i < STRIPES; i++)
+			total += counters.get(i * STRIDE + counter);
+		return total;
+	}
+}
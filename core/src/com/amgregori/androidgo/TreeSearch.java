@@ -0,0 +1,303 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ *
+ * Monte Carlo tree search (UCT) for the move to play in the current
+ * situation of a <code>Game</code>.  The search runs on several threads
+ * sharing one tree.  Node statistics are updated with atomic
+ * operations only, and a thread descending through a node counts a
+ * visit before its result is known (a virtual loss), which steers the
+ * other threads towards different lines.  Each thread plays its
+ * simulations on its own <code>Playout</code>.
+ * <p>
+ * The search stops when the playout budget or the time budget runs
+ * out, or when <code>stop()</code> is called.  The game is copied by
+ * the constructor, so it may be changed while the search runs.
+ *
+ */
+public class TreeSearch {
+	// Exploration constant of the UCT formula.
+	private static final double EXPLORATION = 0.7;
+	// Value of unvisited children, so that each is tried once first.
+	private static final double FIRST_PLAY_URGENCY = 10.0;
+	// Visits a leaf needs before its children are added.
+	private static final int EXPANSION_THRESHOLD = 2;
+
+	private final Playout[] playouts;
+	private final char rootTurn;
+	private final Node root;
+	private final int area;
+
+	private double komi = 7.5;
+	private int playoutBudget;
+	private long timeBudget = 1000;
+
+	private final AtomicInteger started = new AtomicInteger();
+	private volatile boolean stopped;
+	private volatile long deadline;
+
+	/**
+	 * Node of the search tree.  <code>wins</code> counts the simulations
+	 * through this node won by the side that played its move.
+	 */
+	static final class Node {
+		final int move;
+		volatile int visits;
+		volatile int wins;
+		volatile Node[] children;
+
+		Node(int move){
+			this.move = move;
+		}
+	}
+
+	private static final AtomicIntegerFieldUpdater<Node> VISITS =
+			AtomicIntegerFieldUpdater.newUpdater(Node.class, "visits");
+	private static final AtomicIntegerFieldUpdater<Node> WINS =
+			AtomicIntegerFieldUpdater.newUpdater(Node.class, "wins");
+	private static final AtomicReferenceFieldUpdater<Node, Node[]> CHILDREN =
+			AtomicReferenceFieldUpdater.newUpdater(Node.class, Node[].class, "children");
+
+	/**
+	 * Constructs a search from the current situation of
+	 * <code>game</code>, using one thread per available processor.
+	 * @param game
+	 */
+	public TreeSearch(Game game){
+		this(game, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Constructs a search from the current situation of
+	 * <code>game</code>.
+	 * @param game
+	 * @param threads	Number of threads to search with.
+	 */
+	public TreeSearch(Game game, int threads){
+		this.playouts = new Playout[Math.max(1, threads)];
+		for(int i = 0; i < playouts.length; i++)
+			playouts[i] = new Playout(game);
+		this.rootTurn = game.getNextTurn();
+		this.root = new Node(Situation.PASS);
+		this.area = game.getBoardSize() * game.getBoardSize();
+	}
+
+	/**
+	 * Set the komi used to decide the winner of each simulation.
+	 * @param komi	Points added to white's score.  Defaults to 7.5.
+	 */
+	public void setKomi(double komi){
+		this.komi = komi;
+	}
+
+	/**
+	 * Limit the number of simulations per search.
+	 * @param playouts	Maximum number of simulations, or <code>0</code>
+	 * for no limit.
+	 */
+	public void setPlayoutBudget(int playouts){
+		this.playoutBudget = playouts;
+	}
+
+	/**
+	 * Limit the time per search.
+	 * @param millis	Maximum time in milliseconds, or <code>0</code> for
+	 * no limit.  Defaults to one second.
+	 */
+	public void setTimeBudget(long millis){
+		this.timeBudget = millis;
+	}
+
+	/**
+	 * Stop a running search.  <code>search()</code> then returns the
+	 * best move found so far.  May be called from any thread.
+	 */
+	public void stop(){
+		stopped = true;
+	}
+
+	/**
+	 * Returns the number of simulations started so far.
+	 */
+	public int getPlayouts(){
+		return Math.min(started.get(), playoutBudget > 0 ? playoutBudget : Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Search for the best move, blocking until one of the budgets runs
+	 * out or <code>stop()</code> is called.  The calling thread takes
+	 * part in the search.
+	 * @return	Index of the point to play, or <code>Situation.PASS</code>.
+	 */
+	public int search(){
+		if(playoutBudget <= 0 && timeBudget <= 0)
+			throw new IllegalStateException("No search budget set.");
+		deadline = timeBudget > 0 ? System.nanoTime() + timeBudget * 1000000L : Long.MAX_VALUE;
+		if(root.children == null)
+			expand(root, playouts[0], new Random());
+
+		Thread[] threads = new Thread[playouts.length - 1];
+		for(int i = 0; i < threads.length; i++){
+			final Playout playout = playouts[i + 1];
+			threads[i] = new Thread("TreeSearch-" + (i + 1)){
+				@Override
+				public void run(){
+					work(playout);
+				}
+			};
+			threads[i].start();
+		}
+		work(playouts[0]);
+
+		boolean interrupted = false;
+		for(Thread t : threads){
+			while(true){
+				try{
+					t.join();
+					break;
+				}catch(InterruptedException ex){
+					stop();
+					interrupted = true;
+				}
+			}
+		}
+		if(interrupted)
+			Thread.currentThread().interrupt();
+		return bestMove();
+	}
+
+	/**
+	 * Returns the move with the most visits at the root.
+	 */
+	private int bestMove(){
+		Node best = bestChild();
+		return best != null ? best.move : Situation.PASS;
+	}
+
+	/**
+	 * Returns the fraction of simulations through the best move won by
+	 * the side to move, or <code>NaN</code> before any search.
+	 */
+	public double getWinRate(){
+		Node best = bestChild();
+		return best == null || best.visits == 0 ? Double.NaN : (double) best.wins / best.visits;
+	}
+
+	private Node bestChild(){
+		Node[] children = root.children;
+		if(children == null)
+			return null;
+		Node best = null;
+		for(Node child : children){
+			if(best == null || child.visits > best.visits)
+				best = child;
+		}
+		return best;
+	}
+
+	private void work(Playout playout){
+		Random random = new Random();
+		// A playout plays at most area * 3 moves.
+		Node[] path = new Node[area * 3 + 1];
+		while(!stopped && System.nanoTime() < deadline){
+			if(started.getAndIncrement() >= playoutBudget && playoutBudget > 0)
+				break;
+			simulate(playout, path, random);
+		}
+	}
+
+	/**
+	 * Run one simulation: descend the tree from the root, adding
+	 * children to a leaf visited often enough, play the rest of the
+	 * game at random and update the nodes on the path.
+	 */
+	private void simulate(Playout playout, Node[] path, Random random){
+		playout.reset();
+		Node node = root;
+		VISITS.incrementAndGet(node);
+		int depth = 0;
+		while(!playout.isOver()){
+			Node[] children = node.children;
+			if(children == null){
+				if(node.visits < EXPANSION_THRESHOLD)
+					break;
+				children = expand(node, playout, random);
+			}
+			Node child = select(node, children);
+			VISITS.incrementAndGet(child);
+			path[depth++] = child;
+			// Children hold only moves the playout accepts here.
+			playout.playMove(child.move);
+			node = child;
+		}
+
+		boolean blackWins = playout.finish() - komi > 0;
+		char mover = rootTurn;
+		for(int i = 0; i < depth; i++){
+			if((mover == Game.BLACK) == blackWins)
+				WINS.incrementAndGet(path[i]);
+			mover = Game.invertColor(mover);
+		}
+	}
+
+	/**
+	 * Add the children of <code>node</code>, one per candidate move of
+	 * the playout plus a pass.  If another thread gets there first, its
+	 * children are kept.
+	 */
+	private Node[] expand(Node node, Playout playout, Random random){
+		int[] moves = new int[area];
+		int count = playout.getCandidates(moves);
+		Node[] children = new Node[count + 1];
+		for(int i = 0; i < count; i++)
+			children[i] = new Node(moves[i]);
+		children[count] = new Node(Situation.PASS);
+		// Shuffle, so that unvisited children are tried in random order.
+		for(int i = count; i > 0; i--){
+			int j = random.nextInt(i + 1);
+			Node t = children[i];
+			children[i] = children[j];
+			children[j] = t;
+		}
+		if(CHILDREN.compareAndSet(node, null, children))
+			return children;
+		return node.children;
+	}
+
+	private Node select(Node node, Node[] children){
+		double logVisits = Math.log(Math.max(1, node.visits));
+		Node best = children[0];
+		double bestValue = Double.NEGATIVE_INFINITY;
+		for(Node child : children){
+			int visits = child.visits;
+			double value = visits == 0 ? FIRST_PLAY_URGENCY :
+				(double) child.wins / visits + EXPLORATION * Math.sqrt(logVisits / visits);
+			if(value > bestValue){
+				bestValue = value;
+				best = child;
+			}
+		}
+		return best;
+	}
+}
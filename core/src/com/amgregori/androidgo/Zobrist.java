@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+/**
+ *
+ * Zobrist keys for hashing board positions.  The hash of a position is
+ * the XOR of the keys of all of its stones, so it can be updated in
+ * constant time whenever a single point changes.
+ *
+ */
+final class Zobrist {
+	private static final long SEED = 0x5DEECE66DL;
+
+	/**
+	 * Key XORed into a situation's hash when black is to play.
+	 */
+	static final long BLACK_TO_MOVE = mix(SEED - 1);
+
+	private Zobrist(){}
+
+	/**
+	 * Returns the key of a stone of <code>color</code> on the point with
+	 * the given index.  Keys are derived from the index alone, so they
+	 * are the same for every board size.
+	 * @param color	Either <code>Game.WHITE</code>, <code>Game.BLACK</code>
+	 * or <code>Game.EMPTY</code>.
+	 * @param index	Index of the point in the board's position.
+	 * @return	The key, or <code>0</code> for an empty point.
+	 */
+	static long key(char color, int index){
+		switch(color){
+		case Game.BLACK:
+			return mix(SEED + 2L * index);
+		case Game.WHITE:
+			return mix(SEED + 2L * index + 1);
+		default:
+			return 0L;
+		}
+	}
+
+	/**
+	 * Computes the hash of a whole position from scratch.
+	 * @param position	Board position as returned by
+	 * <code>Board.getPosition()</code>.
+	 * @return	Hash of the position.
+	 */
+	static long hash(char[] position){
+		long hash = 0L;
+		for(int i = 0; i < position.length; i++)
+			hash ^= key(position[i], i);
+		return hash;
+	}
+
+	/**
+	 * Computes the hash of a whole position from scratch.
+	 * @param position	Board position as returned by
+	 * <code>Board.toString()</code>.
+	 * @return	Hash of the position.
+	 */
+	static long hash(String position){
+		long hash = 0L;
+		for(int i = 0; i < position.length(); i++)
+			hash ^= key(position.charAt(i), i);
+		return hash;
+	}
+
+	/**
+	 * Combines a position hash with the side to move.
+	 * @param positionHash	Hash of the position.
+	 * @param turn	Whose turn it is to move.
+	 * @return	Hash of the situation.
+	 */
+	static long situation(long positionHash, char turn){
+		return turn == Game.BLACK ? positionHash ^ BLACK_TO_MOVE : positionHash;
+	}
+
+	// SplitMix64 finalizer.
+	private static long mix(long z){
+		z += 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
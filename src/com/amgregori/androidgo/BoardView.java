@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.util.AttributeSet;
+import android.view.MotionEvent;
+import android.view.View;
+
+/**
+ * 
+ * Square view of the board.  Draws each point as a tile (the grid lines
+ * through the point, and the stone on it, if any) copied from a sprite
+ * atlas.  The atlas holds every tile once, pre-scaled to the size of a
+ * point, and is only rebuilt when that size changes; drawing the board
+ * copies tiles without scaling or allocating.
+ *
+ */
+public class BoardView extends View {
+	/**
+	 * Receives a notification when a point of the board is tapped.
+	 */
+	public interface Listener {
+		void onPointTapped(int index);
+	}
+
+	// Kinds of tile, by where the point lies on the board.  Columns of
+	// the atlas.
+	private static final int MIDDLE = 0;
+	private static final int TOP_LEFT = 1;
+	private static final int TOP = 2;
+	private static final int TOP_RIGHT = 3;
+	private static final int RIGHT = 4;
+	private static final int BOTTOM_RIGHT = 5;
+	private static final int BOTTOM = 6;
+	private static final int BOTTOM_LEFT = 7;
+	private static final int LEFT = 8;
+	private static final int KINDS = 9;
+
+	// Rows of the atlas.
+	private static final int EMPTY_ROW = 0;
+	private static final int BLACK_ROW = 1;
+	private static final int WHITE_ROW = 2;
+	
+	// Drawables of the tiles, by row and column of the atlas.
+	private static final int[][] TILES = {
+		{R.drawable.go_empty, R.drawable.go_empty_tl, R.drawable.go_empty_t,
+			R.drawable.go_empty_tr, R.drawable.go_empty_r, R.drawable.go_empty_br,
+			R.drawable.go_empty_b, R.drawable.go_empty_bl, R.drawable.go_empty_l},
+		{R.drawable.go_black, R.drawable.go_black_tl, R.drawable.go_black_t,
+			R.drawable.go_black_tr, R.drawable.go_black_r, R.drawable.go_black_br,
+			R.drawable.go_black_b, R.drawable.go_black_bl, R.drawable.go_black_l},
+		{R.drawable.go_white, R.drawable.go_white_tl, R.drawable.go_white_t,
+			R.drawable.go_white_tr, R.drawable.go_white_r, R.drawable.go_white_br,
+			R.drawable.go_white_b, R.drawable.go_white_bl, R.drawable.go_white_l}
+	};
+
+	private int boardSize;
+	private char[] position = new char[0];
+	// Tile kind of each point.
+	private byte[] kinds = new byte[0];
+	private Listener listener;
+
+	private Bitmap atlas;
+	private int cellSize;
+	private int left;
+	private int top;
+	// Reused by onDraw().
+	private final Rect src = new Rect();
+	private final Rect dst = new Rect();
+	private final Rect clip = new Rect();
+
+	public BoardView(Context context){
+		super(context);
+	}
+
+	public BoardView(Context context, AttributeSet attrs){
+		super(context, attrs);
+	}
+
+	public BoardView(Context context, AttributeSet attrs, int defStyle){
+		super(context, attrs, defStyle);
+	}
+
+	/**
+	 * Set the object to notify when a point is tapped.
+	 * @param listener
+	 */
+	public void setListener(Listener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Show a whole position, e.g., after a new game is started or the
+	 * history is stepped through.
+	 * @param position	State of all board points, as returned by
+	 * <code>Game.getPosition()</code>.  Copied.
+	 */
+	public void setPosition(char[] position){
+		int size = (int) Math.sqrt(position.length);
+		if(size != boardSize)
+			setBoardSize(size);
+		System.arraycopy(position, 0, this.position, 0, position.length);
+		invalidate();
+	}
+
+	/**
+	 * Show the points changed by a move or a step through the history.
+	 * Only the area around them is redrawn.
+	 * @param changes	Indexes of the changed points.
+	 * @param colors	New state of each changed point.
+	 */
+	public void updatePoints(int[] changes, char[] colors){
+		if(changes.length == 0)
+			return;
+		int minX = boardSize, minY = boardSize, maxX = -1, maxY = -1;
+		for(int i = 0; i < changes.length; i++){
+			int index = changes[i];
+			position[index] = colors[i];
+			int x = index % boardSize;
+			int y = index / boardSize;
+			minX = Math.min(minX, x);
+			minY = Math.min(minY, y);
+			maxX = Math.max(maxX, x);
+			maxY = Math.max(maxY, y);
+		}
+		invalidate(left + minX * cellSize, top + minY * cellSize,
+				left + (maxX + 1) * cellSize, top + (maxY + 1) * cellSize);
+	}
+
+	private void setBoardSize(int size){
+		boardSize = size;
+		position = new char[size * size];
+		kinds = new byte[size * size];
+		int last = size - 1;
+		for(int y = 0; y < size; y++){
+			for(int x = 0; x < size; x++){
+				int kind;
+				if(y == 0)
+					kind = x == 0 ? TOP_LEFT : x == last ? TOP_RIGHT : TOP;
+				else if(y == last)
+					kind = x == 0 ? BOTTOM_LEFT : x == last ? BOTTOM_RIGHT : BOTTOM;
+				else
+					kind = x == 0 ? LEFT : x == last ? RIGHT : MIDDLE;
+				kinds[y * size + x] = (byte) kind;
+			}
+		}
+		layoutBoard(getWidth(), getHeight());
+	}
+
+	/**
+	 * Square, as wide as allowed, and no taller than allowed.
+	 */
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec){
+		int width = MeasureSpec.getSize(widthMeasureSpec);
+		int height = MeasureSpec.getSize(heightMeasureSpec);
+		int side;
+		if(MeasureSpec.getMode(widthMeasureSpec) == MeasureSpec.UNSPECIFIED)
+			side = height;
+		else if(MeasureSpec.getMode(heightMeasureSpec) == MeasureSpec.UNSPECIFIED)
+			side = width;
+		else
+			side = Math.min(width, height);
+		setMeasuredDimension(side, side);
+	}
+
+	@Override
+	protected void onSizeChanged(int w, int h, int oldw, int oldh){
+		super.onSizeChanged(w, h, oldw, oldh);
+		layoutBoard(w, h);
+	}
+
+	/**
+	 * Work out the size of a point and center the board in the view.
+	 * Rebuilds the atlas if the size of a point changed.
+	 */
+	private void layoutBoard(int width, int height){
+		if(boardSize == 0 || width == 0 || height == 0)
+			return;
+		int size = Math.min(width, height) / boardSize;
+		left = (width - size * boardSize) / 2;
+		top = (height - size * boardSize) / 2;
+		if(size != cellSize || atlas == null){
+			cellSize = size;
+			buildAtlas();
+		}
+	}
+
+	/**
+	 * Decode every tile once and draw it, scaled to the size of a point,
+	 * into its slot of the atlas.
+	 */
+	private void buildAtlas(){
+		if(atlas != null)
+			atlas.recycle();
+		atlas = null;
+		if(cellSize == 0)
+			return;
+		atlas = Bitmap.createBitmap(KINDS * cellSize, TILES.length * cellSize, Bitmap.Config.ARGB_8888);
+		Canvas canvas = new Canvas(atlas);
+		Resources resources = getResources();
+		for(int row = 0; row < TILES.length; row++){
+			for(int kind = 0; kind < KINDS; kind++){
+				Bitmap tile = BitmapFactory.decodeResource(resources, TILES[row][kind]);
+				dst.set(kind * cellSize, row * cellSize, (kind + 1) * cellSize, (row + 1) * cellSize);
+				canvas.drawBitmap(tile, null, dst, null);
+				tile.recycle();
+			}
+		}
+	}
+
+	@Override
+	protected void onDetachedFromWindow(){
+		super.onDetachedFromWindow();
+		if(atlas != null){
+			atlas.recycle();
+			atlas = null;
+		}
+	}
+
+	@Override
+	protected void onAttachedToWindow(){
+		super.onAttachedToWindow();
+		if(atlas == null)
+			layoutBoard(getWidth(), getHeight());
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas){
+		if(atlas == null || !canvas.getClipBounds(clip))
+			return;
+		// Only draw the points inside the area being redrawn, e.g. the
+		// one invalidated by updatePoints().
+		int minX = Math.max(0, (clip.left - left) / cellSize);
+		int minY = Math.max(0, (clip.top - top) / cellSize);
+		int maxX = Math.min(boardSize - 1, (clip.right - 1 - left) / cellSize);
+		int maxY = Math.min(boardSize - 1, (clip.bottom - 1 - top) / cellSize);
+		for(int y = minY; y <= maxY; y++){
+			int dstTop = top + y * cellSize;
+			for(int x = minX; x <= maxX; x++){
+				int index = y * boardSize + x;
+				int row;
+				switch(position[index]){
+				case Game.BLACK:
+					row = BLACK_ROW;
+					break;
+				case Game.WHITE:
+					row = WHITE_ROW;
+					break;
+				default:
+					row = EMPTY_ROW;
+					break;
+				}
+				int srcLeft = kinds[index] * cellSize;
+				int srcTop = row * cellSize;
+				int dstLeft = left + x * cellSize;
+				src.set(srcLeft, srcTop, srcLeft + cellSize, srcTop + cellSize);
+				dst.set(dstLeft, dstTop, dstLeft + cellSize, dstTop + cellSize);
+				canvas.drawBitmap(atlas, src, dst, null);
+			}
+		}
+	}
+
+	/**
+	 * Reports a tap on the point where the touch is lifted.
+	 */
+	@Override
+	public boolean onTouchEvent(MotionEvent event){
+		if(boardSize == 0 || cellSize == 0)
+			return false;
+		switch(event.getAction()){
+		case MotionEvent.ACTION_DOWN:
+			return true;
+		case MotionEvent.ACTION_UP:
+			int x = ((int) event.getX() - left) / cellSize;
+			int y = ((int) event.getY() - top) / cellSize;
+			if(event.getX() >= left && event.getY() >= top && x < boardSize && y < boardSize
+					&& listener != null)
+				listener.onPointTapped(y * boardSize + x);
+			return true;
+		}
+		return super.onTouchEvent(event);
+	}
+}
@@ -0,0 +1,432 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.File;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import android.os.BadParcelableException;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * 
+ * Runs the rules engine on a background thread.  The executor owns the
+ * <code>Game</code>: moves, passes, history steps and searches for a
+ * computer move are queued as commands and run one at a time, in order,
+ * by a single thread.  After each command the executor posts an
+ * <code>Update</code> with what changed to the UI thread, so the UI
+ * never calls into the game itself.
+ * <p>
+ * Stale work is dropped rather than run.  Consecutive history steps
+ * still waiting in the queue are folded into a single seek.  Starting
+ * another game, or <code>cancel()</code>, discards every command queued
+ * before it and stops a search in progress.
+ * <p>
+ * Every public method must be called on the UI thread.
+ *
+ */
+public class EngineExecutor {
+	/**
+	 * Receives the updates, on the UI thread.
+	 */
+	public interface Listener {
+		void onEngineUpdate(Update update);
+	}
+
+	// Commands.  Also the value of Update.command.
+	public static final int NEW_GAME = 0;
+	public static final int RECOVER = 1;
+	public static final int REFRESH = 2;
+	public static final int SET_STONE = 3;
+	public static final int PASS = 4;
+	public static final int STEP = 5;
+	public static final int THINK = 6;
+
+	/**
+	 * State of the game after a command.  Points are described as
+	 * changes from the previous update; when <code>position</code> is
+	 * not <code>null</code>, the whole board is given instead.
+	 */
+	public static final class Update {
+		/** Command that led to this update. */
+		public final int command;
+		/** Whole position, for a new game or a refresh, otherwise <code>null</code>. */
+		public final char[] position;
+		/** Indexes of the points that changed. */
+		public final int[] changes;
+		/** New state of each changed point. */
+		public final char[] colors;
+		public final int boardSize;
+		public final char nextTurn;
+		public final boolean running;
+		public final int moveNumber;
+		public final int moveCount;
+		public final int capturedBlack;
+		public final int capturedWhite;
+
+		Update(int command, Game game, char[] position, int[] changes){
+			char[] current = game.getPosition();
+			this.command = command;
+			this.position = position;
+			this.changes = changes;
+			this.colors = new char[changes.length];
+			for(int i = 0; i < changes.length; i++)
+				colors[i] = current[changes[i]];
+			this.boardSize = game.getBoardSize();
+			this.nextTurn = game.getNextTurn();
+			this.running = game.isRunning();
+			this.moveNumber = game.getMoveNumber();
+			this.moveCount = game.getMoveCount();
+			this.capturedBlack = game.getCapturedStones(Game.BLACK);
+			this.capturedWhite = game.getCapturedStones(Game.WHITE);
+		}
+	}
+
+	private static final class Command {
+		final int type;
+		final int generation;
+		int arg;
+		long millis;
+		// Game to start, and rules of the new game to start if there is
+		// none.
+		ParcelableGame saved;
+		File file;
+		int koRule;
+		boolean suicideRule;
+
+		Command(int type, int generation){
+			this.type = type;
+			this.generation = generation;
+		}
+	}
+
+	private final GameJournal journal;
+	private final Handler handler = new Handler(Looper.getMainLooper());
+	private final BlockingQueue<Command> queue = new LinkedBlockingQueue<Command>();
+	private Listener listener;
+
+	// Bumped to drop every command queued so far.
+	private volatile int generation;
+	private volatile TreeSearch search;
+
+	// Game as encoded by GameCodec after the last command that changed
+	// it, for save().  Never modified once published.
+	private volatile byte[] snapshot;
+
+	// Engine thread state.
+	private Game game;
+
+	/**
+	 * Starts the engine thread.
+	 * @param journal	Journal to record the game in, or
+	 * <code>null</code>.
+	 */
+	public EngineExecutor(GameJournal journal){
+		this.journal = journal;
+		Thread thread = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				execute();
+			}
+		}, "EngineExecutor");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Set the object to post updates to.  Updates are not queued while
+	 * there is none, so a new listener should ask for a
+	 * <code>refresh()</code>.
+	 * @param listener	The listener, or <code>null</code>.
+	 */
+	public void setListener(Listener listener){
+		this.listener = listener;
+	}
+
+	/**
+	 * Drop every queued command and start a new game.
+	 * @param koRule	Either <code>Game.SITUATIONAL</code>,
+	 * <code>Game.POSITIONAL</code>, or <code>Game.JAPANESE</code>.
+	 * @param suicideRule	<code>true</code> if suicide is allowed.
+	 * @param boardSize	Number of vertical or horizontal lines.
+	 */
+	public void newGame(int koRule, boolean suicideRule, int boardSize){
+		queue.add(supersede(NEW_GAME, koRule, suicideRule, boardSize));
+	}
+
+	/**
+	 * Drop every queued command and continue a saved game, or start a
+	 * new game if it cannot be read.
+	 * @param saved	The game.
+	 * @param koRule	Ko rule of the new game.
+	 * @param suicideRule	Suicide rule of the new game.
+	 * @param boardSize	Board size of the new game.
+	 */
+	public void start(ParcelableGame saved, int koRule, boolean suicideRule, int boardSize){
+		Command c = supersede(NEW_GAME, koRule, suicideRule, boardSize);
+		c.saved = saved;
+		queue.add(c);
+	}
+
+	/**
+	 * Drop every queued command and continue the game left in a
+	 * journal, or start a new game if there is none.
+	 * @param file	The journal.
+	 * @param koRule	Ko rule of the new game.
+	 * @param suicideRule	Suicide rule of the new game.
+	 * @param boardSize	Board size of the new game.
+	 */
+	public void recover(File file, int koRule, boolean suicideRule, int boardSize){
+		Command c = supersede(RECOVER, koRule, suicideRule, boardSize);
+		c.file = file;
+		queue.add(c);
+	}
+
+	/**
+	 * Ask for an update with the whole position.
+	 */
+	public void refresh(){
+		queue.add(new Command(REFRESH, generation));
+	}
+
+	/**
+	 * Play a stone for the side to move.  Illegal moves change nothing.
+	 * @param index	Index of the point.
+	 */
+	public void setStone(int index){
+		Command c = new Command(SET_STONE, generation);
+		c.arg = index;
+		queue.add(c);
+	}
+
+	/**
+	 * Pass for the side to move.
+	 */
+	public void passTurn(){
+		queue.add(new Command(PASS, generation));
+	}
+
+	/**
+	 * Go to the previous, next, first or last move in the history.
+	 * @param direction	Either <code>Game.PREVIOUS</code>,
+	 * <code>Game.NEXT</code>, <code>Game.FIRST</code>, or
+	 * <code>Game.LAST</code>.
+	 */
+	public void stepHistory(int direction){
+		Command c = new Command(STEP, generation);
+		c.arg = direction;
+		queue.add(c);
+	}
+
+	/**
+	 * Search for a move for <code>color</code> and play it, if by the
+	 * time the command runs it is that color's turn at the end of the
+	 * game.  Otherwise the update changes nothing.
+	 * @param color	Either <code>Game.BLACK</code> or
+	 * <code>Game.WHITE</code>.
+	 * @param millis	Time to think, in milliseconds.
+	 */
+	public void think(char color, long millis){
+		Command c = new Command(THINK, generation);
+		c.arg = color;
+		c.millis = millis;
+		queue.add(c);
+	}
+
+	/**
+	 * Drop every queued command and stop a search in progress without
+	 * playing its move.
+	 */
+	public void cancel(){
+		generation++;
+		queue.clear();
+		TreeSearch s = search;
+		if(s != null)
+			s.stop();
+	}
+
+	/**
+	 * Returns the game as it was after the last command that changed
+	 * it, for saving.  Only wraps a snapshot published by the engine
+	 * thread, so it neither waits for a command nor runs rules code.
+	 * @return	The game, or <code>null</code> if none was started yet.
+	 */
+	public ParcelableGame save(){
+		byte[] s = snapshot;
+		return s != null ? new ParcelableGame(s) : null;
+	}
+
+	private Command supersede(int type, int koRule, boolean suicideRule, int boardSize){
+		cancel();
+		Command c = new Command(type, generation);
+		c.koRule = koRule;
+		c.suicideRule = suicideRule;
+		c.arg = boardSize;
+		return c;
+	}
+
+	private void execute(){
+		while(true){
+			Command c;
+			try{
+				c = queue.take();
+			}catch(InterruptedException ex){
+				return;
+			}
+			if(c.generation != generation)
+				continue;
+			if(c.type == THINK){
+				think(c);
+				continue;
+			}
+			Update update = apply(c);
+			if(update != null)
+				post(update);
+		}
+	}
+
+	private Update apply(Command c){
+		switch(c.type){
+		case NEW_GAME:
+		case RECOVER:
+			Game next = null;
+			if(c.type == RECOVER){
+				next = GameJournal.recover(c.file);
+			}else if(c.saved != null){
+				try{
+					next = c.saved.getGame();
+				}catch(BadParcelableException ex){
+					EngineLog.v("1", "Saved game unreadable: " + ex.getMessage());
+				}
+			}
+			if(next == null)
+				next = new Game(c.koRule, c.suicideRule, c.arg);
+			game = next;
+			if(journal != null)
+				journal.start(game);
+			publish();
+			return new Update(c.type, game, game.getPosition().clone(), Situation.NO_STONES);
+		}
+		if(game == null)
+			return null;
+		switch(c.type){
+		case REFRESH:
+			return new Update(REFRESH, game, game.getPosition().clone(), Situation.NO_STONES);
+		case SET_STONE:
+			int[] changes = game.setStone(c.arg);
+			if(journal != null)
+				journal.recordMove(game);
+			if(changes.length > 0)
+				publish();
+			return new Update(SET_STONE, game, null, changes);
+		case PASS:
+			game.passTurn();
+			if(journal != null)
+				journal.recordMove(game);
+			publish();
+			return new Update(PASS, game, null, Situation.NO_STONES);
+		case STEP:
+			int[] stepped = step(c.arg);
+			publish();
+			return new Update(STEP, game, null, stepped);
+		}
+		return null;
+	}
+
+	/**
+	 * Go to the move the given step and any steps queued right after it
+	 * lead to, in one seek.
+	 */
+	private int[] step(int direction){
+		int index = game.getMoveNumber();
+		while(true){
+			switch(direction){
+			case Game.PREVIOUS:
+				index = Math.max(index - 1, 0);
+				break;
+			case Game.NEXT:
+				index = Math.min(index + 1, game.getMoveCount());
+				break;
+			case Game.FIRST:
+				index = 0;
+				break;
+			case Game.LAST:
+				index = game.getMoveCount();
+				break;
+			}
+			Command next = queue.peek();
+			if(next == null || next.type != STEP || next.generation != generation)
+				break;
+			queue.poll();
+			direction = next.arg;
+		}
+		int[] changes = game.seek(index);
+		if(journal != null)
+			journal.recordSeek(game);
+		return changes;
+	}
+
+	/**
+	 * Search for a move, then play it unless cancelled meanwhile.
+	 */
+	private void think(Command c){
+		if(game == null)
+			return;
+		if(!game.isRunning() || game.getNextTurn() != c.arg
+				|| game.getMoveNumber() != game.getMoveCount()){
+			post(new Update(THINK, game, null, Situation.NO_STONES));
+			return;
+		}
+		TreeSearch s = new TreeSearch(game);
+		s.setTimeBudget(c.millis);
+		search = s;
+		if(c.generation != generation)
+			s.stop();
+		int move = s.search();
+		search = null;
+		if(c.generation != generation)
+			return;
+		int[] changes = Situation.NO_STONES;
+		if(move == Situation.PASS)
+			game.passTurn();
+		else
+			changes = game.setStone(move);
+		if(journal != null)
+			journal.recordMove(game);
+		publish();
+		post(new Update(THINK, game, null, changes));
+	}
+
+	/**
+	 * Publish a snapshot of the game for <code>save()</code>.
+	 */
+	private void publish(){
+		snapshot = GameCodec.encode(game);
+	}
+
+	private void post(final Update update){
+		handler.post(new Runnable(){
+			@Override
+			public void run(){
+				if(listener != null)
+					listener.onEngineUpdate(update);
+			}
+		});
+	}
+}
@@ -16,23 +16,16 @@
 
 package com.amgregori.androidgo;
 
-import java.util.Collection;
+import java.io.File;
 
-import android.annotation.SuppressLint;
-import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.graphics.Typeface;
-import android.os.Build;
 import android.os.Bundle;
 import android.preference.PreferenceManager;
 import android.util.SparseIntArray;
 import android.view.View;
-import android.view.ViewGroup;
-import android.widget.BaseAdapter;
 import android.widget.Button;
-import android.widget.GridView;
-import android.widget.ImageView;
 import android.widget.TextView;
 
 import com.actionbarsherlock.app.SherlockActivity;
@@ -44,41 +37,69 @@ import com.actionbarsherlock.view.SubMenu;
  * UI stuff.
  * 
  */
-public class MainActivity extends SherlockActivity {
+public class MainActivity extends SherlockActivity implements EngineExecutor.Listener, BoardView.Listener {
 	//instance variables
-	private Game game;
-	private int boardSize;
 	private Typeface fontAwesome;
-	private GridView gridView;
+	private BoardView boardView;
 	private TextView whiteCount;
 	private TextView blackCount;
 	private MenuItem passItem;
+	private int koRule;
+	private boolean suicideRule;
+	private int boardSize;
+	private char computerColor;
+	// Last state posted by the engine, null until the whole position is.
+	private EngineExecutor.Update state;
+	private boolean thinking;
+	private boolean recovering;
+	// Moves sent to the engine and not yet reported back.
+	private int pendingMoves;
+	// Shared by all instances of the activity, so that a single thread
+	// runs the game and writes the journal.
+	private static GameJournal journal;
+	private static EngineExecutor engine;
 
 	//constants
 	private static final String GAME_KEY = "game";
-	private static final String BOARD_SIZE_KEY = "board_size";
+	private static final String COMPUTER_KEY = "computer";
+	private static final String JOURNAL_FILE = "game.journal";
 
 	/**
 	 * Sets up board, buttons, menus, etc.
 	 */
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
+		EngineLog.setLogger(new AndroidLogger());
 		PreferenceManager.setDefaultValues(this, R.xml.preferences, false);
 		setContentView(R.layout.activity_main);
 
-		gridView = (GridView) findViewById(R.id.gridview);
+		boardView = (BoardView) findViewById(R.id.board);
+		boardView.setListener(this);
 		whiteCount = (TextView) findViewById(R.id.white_taken);
 		blackCount = (TextView) findViewById(R.id.black_taken);
 		fontAwesome = Typefaces.get(this, "fonts/fontawesome-webfont.ttf");
 
-		if(savedInstanceState == null){
-			game = newGameFromSettings();
+		readSettings();
+		if(savedInstanceState != null)
+			computerColor = savedInstanceState.getChar(COMPUTER_KEY);
+		File journalFile = new File(getFilesDir(), JOURNAL_FILE);
+		if(journal == null)
+			journal = new GameJournal(journalFile);
+		if(engine == null){
+			engine = new EngineExecutor(journal);
+			if(savedInstanceState == null || !savedInstanceState.containsKey(GAME_KEY)){
+				recovering = true;
+				engine.recover(journalFile, koRule, suicideRule, boardSize);
+			}else{
+				engine.start((ParcelableGame) savedInstanceState.getParcelable(GAME_KEY), koRule, suicideRule, boardSize);
+			}
 		}else{
-			game = savedInstanceState.getParcelable(GAME_KEY);
-			boardSize = savedInstanceState.getInt(BOARD_SIZE_KEY);
+			// The engine outlived the previous instance; a saved state
+			// without the game means it was still reading the journal.
+			recovering = savedInstanceState != null && !savedInstanceState.containsKey(GAME_KEY);
+			engine.refresh();
 		}
-		refreshCaptured();
-		setupBoard();
+		engine.setListener(this);
 
 		SparseIntArray historyButtons = new SparseIntArray();
 		historyButtons.put(R.id.controlButtonFirst, Game.FIRST);
@@ -95,53 +116,54 @@ public class MainActivity extends SherlockActivity {
 			button.setOnClickListener(new View.OnClickListener() {
 				@Override
 				public void onClick(View v) {
-					game.stepHistory(stepDirection);
-					refreshCaptured();
-					refreshPassItem();
-					setupBoard();
+					if(isThinking())
+						return;
+					engine.stepHistory(stepDirection);
 				}
 			});
 		}
 	}
 
-	private ImageAdapter setupBoard(){
-		ImageAdapter adapter = new ImageAdapter(this);
-		gridView.setNumColumns(boardSize);
-		gridView.setAdapter(adapter);
-		return adapter;
+	@Override
+	protected void onResume(){
+		super.onResume();
+		startComputerMove();
 	}
 
 	@Override
-	protected void onSaveInstanceState(Bundle outState){
-		outState.putParcelable(GAME_KEY, game);
-		outState.putInt(BOARD_SIZE_KEY, boardSize);
-		super.onSaveInstanceState(outState);
+	protected void onPause(){
+		stopComputerMove();
+		super.onPause();
 	}
 
 	@Override
-	protected void onRestoreInstanceState(Bundle savedInstanceState){
-		super.onRestoreInstanceState(savedInstanceState);
-		game = savedInstanceState.getParcelable(GAME_KEY);
-		boardSize = savedInstanceState.getInt(BOARD_SIZE_KEY);
+	protected void onDestroy(){
+		engine.setListener(null);
+		super.onDestroy();
 	}
 
-	// Accessor methods
-
-	/**
-	 * Get the <code>Game</code> object currently referenced by this UI.
-	 * @return	Current <code>Game</code>
-	 */
-	protected Game getGame(){
-		return game;
+	@Override
+	protected void onSaveInstanceState(Bundle outState){
+		// While the journal is being read, leave the game out so that the
+		// next instance reads it again.
+		if(!recovering){
+			ParcelableGame saved = engine.save();
+			if(saved != null)
+				outState.putParcelable(GAME_KEY, saved);
+		}
+		outState.putChar(COMPUTER_KEY, computerColor);
+		super.onSaveInstanceState(outState);
 	}
 
+	// Accessor methods
+
 	/**
 	 * Return the current game's board size.
 	 * @return	Number of vertical or horizontal lines.
 	 * For example, a 19x19 board will return 19.
 	 */
 	protected int getBoardSize(){
-		return boardSize;
+		return state != null ? state.boardSize : boardSize;
 	}
 
 	// other methods
@@ -151,22 +173,104 @@ public class MainActivity extends SherlockActivity {
 	 * captured stones.
 	 */
 	protected void refreshCaptured(){
-		whiteCount.setText(String.valueOf(game.getCapturedStones(Game.WHITE)));
-		blackCount.setText(String.valueOf(game.getCapturedStones(Game.BLACK)));		
+		whiteCount.setText(String.valueOf(state.capturedWhite));
+		blackCount.setText(String.valueOf(state.capturedBlack));		
 	}
 
-	private Game newGameFromSettings(){
+	/**
+	 * Read the rules and size of the next new game, and who the computer
+	 * plays, from the settings.
+	 */
+	private void readSettings(){
 		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
-		int koRule = prefs.getString("ko","0").equals("0") ? Game.SITUATIONAL : Game.POSITIONAL;
-		boolean suicideRule = prefs.getString("suicide","0").equals("1") ? true : false;
+		String ko = prefs.getString("ko","0");
+		koRule = ko.equals("0") ? Game.SITUATIONAL : ko.equals("1") ? Game.POSITIONAL : Game.JAPANESE;
+		suicideRule = prefs.getString("suicide","0").equals("1") ? true : false;
 		boardSize = Integer.parseInt(prefs.getString("board_size", "19"));
+		computerColor = prefs.getString("opponent", "0").equals("1") ? Game.WHITE : Game.EMPTY;
+	}
+
+	/**
+	 * Check if the computer is searching for a move, or a saved game is
+	 * being read.  The human player must not change the game meanwhile.
+	 * @return	<code>true</code> if yes, <code>false</code> if no.
+	 */
+	protected boolean isThinking(){
+		return thinking || recovering || state == null;
+	}
+
+	/**
+	 * Let the computer search for a move in the background if it is its
+	 * turn at the end of the game.
+	 */
+	protected void startComputerMove(){
+		if(isThinking() || !state.running || state.nextTurn != computerColor
+				|| state.moveNumber != state.moveCount)
+			return;
+		SharedPreferences prefs = PreferenceManager.getDefaultSharedPreferences(this);
+		long millis = Long.parseLong(prefs.getString("thinking_time", "3")) * 1000;
+		thinking = true;
+		engine.think(computerColor, millis);
+	}
 
-		return new Game(koRule, suicideRule, boardSize);
+	private void stopComputerMove(){
+		if(thinking){
+			engine.cancel();
+			thinking = false;
+		}
+	}
+
+	@Override
+	public void onEngineUpdate(EngineExecutor.Update update){
+		if(update.position != null){
+			boardView.setPosition(update.position);
+		}else if(state == null){
+			// Relative to a state this instance never saw; the refresh
+			// asked for in onCreate() follows.
+			return;
+		}else{
+			boardView.updatePoints(update.changes, update.colors);
+		}
+		state = update;
+		switch(update.command){
+		case EngineExecutor.RECOVER:
+		case EngineExecutor.REFRESH:
+			// A refresh is queued after any journal still being read.
+			recovering = false;
+			break;
+		case EngineExecutor.THINK:
+			thinking = false;
+			break;
+		case EngineExecutor.SET_STONE:
+		case EngineExecutor.PASS:
+			pendingMoves = Math.max(pendingMoves - 1, 0);
+			break;
+		}
+		refreshCaptured();
+		if(passItem != null)
+			refreshPassItem();
+		startComputerMove();
+	}
+
+	/**
+	 * Against the computer, a move must be reported back before the
+	 * next one is sent, or the player could move in the computer's turn.
+	 */
+	private boolean canMove(){
+		return !isThinking() && (computerColor == Game.EMPTY || pendingMoves == 0);
+	}
+
+	@Override
+	public void onPointTapped(int index){
+		if(!canMove())
+			return;
+		pendingMoves++;
+		engine.setStone(index);
 	}
 
 	private void refreshPassItem(){
-		if(game.isRunning()){
-			passItem.setEnabled(true);
+		if(state == null || state.running){
+			passItem.setEnabled(state != null);
 			passItem.setTitle(R.string.pass_turn);
 		}else{
 			passItem.setEnabled(false);
@@ -182,11 +286,14 @@ public class MainActivity extends SherlockActivity {
 				.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
 					@Override
 					public boolean onMenuItemClick(MenuItem item) {
-						game.passTurn();
-						refreshPassItem();
+						if(!canMove())
+							return true;
+						pendingMoves++;
+						engine.passTurn();
 						return true;
 					}
 				});;
+		refreshPassItem();
 
 				SubMenu subMenu1 = menu.addSubMenu("Action Item");
 				subMenu1.add(R.string.new_game)
@@ -194,10 +301,11 @@ public class MainActivity extends SherlockActivity {
 				.setOnMenuItemClickListener(new MenuItem.OnMenuItemClickListener() {
 					@Override
 					public boolean onMenuItemClick(MenuItem item) {
-						game = newGameFromSettings();
-						refreshCaptured();
-						setupBoard();
-						refreshPassItem();
+						readSettings();
+						thinking = false;
+						recovering = false;
+						pendingMoves = 0;
+						engine.newGame(koRule, suicideRule, boardSize);
 						return true;
 					}
 				});
@@ -210,137 +318,4 @@ public class MainActivity extends SherlockActivity {
 
 				return super.onCreateOptionsMenu(menu);
 	}
-	
-	/**
-	 * 
-	 * Adapter used the update the board graphics.
-	 *
-	 */
-	private class ImageAdapter extends BaseAdapter {
-		private MainActivity mainActivity;
-		private int[] mThumbIds;
-
-		public ImageAdapter(Context c) {
-			mainActivity = (MainActivity) c;
-			char[] position = mainActivity.getGame().getPosition();
-			mThumbIds =  new int[position.length];
-
-			for(int i = 0; i < position.length; i++){
-				mThumbIds[i] = makeImageResource(i, position[i]);
-			}
-		}
-
-		public int getCount() {
-			return mThumbIds.length;
-		}
-
-		public void setImageResource(int index, char color){
-			mThumbIds[index] =  makeImageResource(index, color);
-		}
-
-		public Object getItem(int index) {
-			return null;
-		}
-
-		public long getItemId(int index) {
-			return 0;
-		}
-
-		// create a new ImageView for each item referenced by the Adapter
-		@SuppressLint("NewApi")
-		public View getView(int index, View convertView, ViewGroup parent) {
-			ImageView imageView;
-			if (convertView == null) {  // if it's not recycled, initialize some attributes
-				imageView = new ImageView(mainActivity);
-				int height;
-				if (Build.VERSION.SDK_INT >= 16){
-					height = ((GridView) parent).getColumnWidth();
-				}else{
-					height = ((GridView) parent).getWidth() / mainActivity.getBoardSize();
-				}
-				imageView.setLayoutParams(new GridView.LayoutParams(GridView.LayoutParams.MATCH_PARENT, height));
-				imageView.setScaleType(ImageView.ScaleType.CENTER_CROP);
-				imageView.setPadding(0, 0, 0, 0);
-				imageView.setOnClickListener(new ImageView.OnClickListener() {
-					@Override
-					public void onClick(View iV) {
-						// TODO Auto-generated method stub
-						Game game = mainActivity.getGame();
-						int index =  ((GridView) iV.getParent()).getPositionForView(iV);
-						updateBoard(game.setStone(index));
-						mainActivity.refreshCaptured();
-					}
-				});
-			} else {
-				imageView = (ImageView) convertView;
-			}
-			imageView.setImageResource(mThumbIds[index]);
-			return imageView;
-		}
-
-		private int makeImageResource(int index, char color){
-			String strColor;
-			String drawableName;
-			int b = mainActivity.getBoardSize();
-
-			switch(color){
-			case Game.WHITE:
-				strColor = "white";
-				break;
-			case Game.BLACK:
-				strColor = "black";
-				break;
-			case Game.EMPTY:
-			default:
-				strColor = "empty";
-				break;
-			}
-
-			if(index == 0){
-				// Top-Left
-				drawableName = "go_" + strColor + "_tl";
-			}else if(index == b-1){
-				// Top-Right
-				drawableName = "go_" + strColor + "_tr";        		
-			}else if(index > 0 && index < b-1){
-				// Top
-				drawableName = "go_" + strColor + "_t";
-			}else if(index == b*(b-1)){
-				// Bottom-Left
-				drawableName = "go_" + strColor + "_bl";
-			}else if(index == b*b-1){
-				// Bottom-Right
-				drawableName = "go_" + strColor + "_br";
-			}else if(index > b*(b-1) && index < b*b-1){
-				// Bottom
-				drawableName = "go_" + strColor + "_b";
-			}else if(index % b == b-1){
-				// Right
-				drawableName = "go_" + strColor + "_r";
-			}else if(index % b == 0){
-				// Left
-				drawableName = "go_" + strColor + "_l";
-			}else{
-				// Middle
-				drawableName = "go_" + strColor;        		
-			}
-
-			return mainActivity.getResources().getIdentifier(drawableName, "drawable", mainActivity.getPackageName());
-		}
-
-		private void updateBoard(Collection<Integer> indices){
-			char[] position = mainActivity.getGame().getPosition();
-			for(int index : indices){
-				setImageResource(index, position[index]);
-				notifyDataSetChanged();
-			}
-		}
-
-		protected void refreshBoard(){
-			char[] position = mainActivity.getGame().getPosition();
-			for(int i = 0; i < position.length; i++)
-				setImageResource(i, position[i]);
-			notifyDataSetChanged();
-		}
-	}
 }
\ No newline at end of file
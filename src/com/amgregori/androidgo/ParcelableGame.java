@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.IOException;
+
+import android.os.BadParcelableException;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+/**
+ * 
+ * <code>Parcelable</code> wrapper around a <code>Game</code>, so that the
+ * engine itself does not depend on Android.  The game is written with
+ * <code>GameCodec</code>'s compact binary encoding, once, when wrapped,
+ * and only read back when asked for, so that either can be done off the
+ * UI thread.
+ *
+ */
+public class ParcelableGame implements Parcelable {
+	private final byte[] data;
+
+	/**
+	 * Wraps <code>game</code>.  Later changes to the game are not seen.
+	 * @param game
+	 */
+	public ParcelableGame(Game game){
+		this(GameCodec.encode(game));
+	}
+
+	/**
+	 * Wraps a game already written with <code>GameCodec.encode()</code>.
+	 * @param data	The encoded game.  Not copied; must not be changed.
+	 */
+	ParcelableGame(byte[] data){
+		this.data = data;
+	}
+
+	/**
+	 * Returns a new copy of the wrapped game.
+	 * @return	The game.
+	 * @throws BadParcelableException	If the data cannot be read.
+	 */
+	public Game getGame(){
+		try{
+			return GameCodec.decode(data);
+		}catch(IOException ex){
+			throw new BadParcelableException(ex);
+		}
+	}
+
+	@Override
+	public void writeToParcel(Parcel dest, int flags){
+		dest.writeByteArray(data);
+	}
+
+	public static final Parcelable.Creator<ParcelableGame> CREATOR = new Parcelable.Creator<ParcelableGame>(){
+		@Override
+		public ParcelableGame createFromParcel(Parcel parcel){
+			return new ParcelableGame(parcel.createByteArray());
+		}
+
+		@Override
+		public ParcelableGame[] newArray(int size) {
+			return new ParcelableGame[size];
+		}
+	};
+
+	@Override
+	public int describeContents() {
+		return 0;
+	}
+}
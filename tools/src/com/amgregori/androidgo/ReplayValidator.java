@@ -0,0 +1,261 @@
+/*
+ * Copyright (C) 2013 Andre Gregori and Mark Garro 
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at 
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and 
+ * limitations under the License.
+ */
+
+package com.amgregori.androidgo;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ *
+ * Replays collections of SGF game records through <code>Game</code>
+ * under each combination of ko and suicide rules, and reports the games
+ * with illegal moves.  Usage:
+ *
+ * <pre>
+ * ReplayValidator [-t threads] [-k positional,situational,japanese]
+ *                 [-s off,on] path...
+ * </pre>
+ *
+ * Each path is an SGF file or a directory, which is searched for
+ * <code>.sgf</code> files.  <code>-t</code> sets the number of threads
+ * (by default one per core), <code>-k</code> and <code>-s</code> the
+ * ko and suicide rules to check (by default all of them).
+ *
+ * Files are replayed by a work-stealing pool.  Errors are printed as
+ * soon as they are found, one line per game and rule setting, followed
+ * by a line for every game that is legal under some settings and not
+ * others.  Only counters are kept, so memory use does not grow with the
+ * size of the collection.
+ *
+ */
+public class ReplayValidator {
+	private static final String[] KO_RULES = {"positional", "situational", "japanese"};
+	private static final int[] KO_VALUES = {Game.POSITIONAL, Game.SITUATIONAL, Game.JAPANESE};
+
+	private final int[] koRules;
+	private final boolean[] suicideRules;
+	private final PrintStream out;
+
+	private final AtomicLong files = new AtomicLong();
+	private final AtomicLong games = new AtomicLong();
+	private final AtomicLong moves = new AtomicLong();
+	private final AtomicLong replays = new AtomicLong();
+	private final AtomicLong errors = new AtomicLong();
+	private final AtomicLong divergent = new AtomicLong();
+
+	public static void main(String[] args){
+		int threads = Runtime.getRuntime().availableProcessors();
+		String ko = "positional,situational,japanese";
+		String suicide = "off,on";
+		List<File> paths = new ArrayList<File>();
+		for(int i = 0; i < args.length; i++){
+			if(args[i].equals("-t") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if(args[i].equals("-k") && i + 1 < args.length)
+				ko = args[++i];
+			else if(args[i].equals("-s") && i + 1 < args.length)
+				suicide = args[++i];
+			else
+				paths.add(new File(args[i]));
+		}
+
+		ReplayValidator validator = new ReplayValidator(koRules(ko), suicideRules(suicide), System.out);
+		long start = System.nanoTime();
+		new ForkJoinPool(threads).invoke(validator.new Scan(paths.toArray(new File[paths.size()])));
+		validator.printSummary((System.nanoTime() - start) / 1e9);
+	}
+
+	/**
+	 * @param koRules	Ko rules to check.  Each is either
+	 * <code>Game.SITUATIONAL</code>, <code>Game.POSITIONAL</code>, or
+	 * <code>Game.JAPANESE</code>.
+	 * @param suicideRules	Suicide rules to check.
+	 * @param out	Stream to report to.
+	 */
+	public ReplayValidator(int[] koRules, boolean[] suicideRules, PrintStream out){
+		this.koRules = koRules;
+		this.suicideRules = suicideRules;
+		this.out = out;
+	}
+
+	/**
+	 * Task that replays the SGF files among <code>paths</code> and
+	 * forks a task for each directory.
+	 */
+	class Scan extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final File[] paths;
+
+		Scan(File[] paths){
+			this.paths = paths;
+		}
+
+		@Override
+		protected void compute(){
+			List<RecursiveAction> tasks = new ArrayList<RecursiveAction>();
+			for(final File path : paths){
+				if(path.isDirectory()){
+					File[] children = path.listFiles();
+					if(children != null)
+						tasks.add(new Scan(children));
+				}else if(path.getName().toLowerCase(Locale.US).endsWith(".sgf")){
+					tasks.add(new RecursiveAction(){
+						@Override
+						protected void compute(){
+							replay(path);
+						}
+					});
+				}
+			}
+			invokeAll(tasks);
+		}
+	}
+
+	/**
+	 * Replay every game in <code>file</code> under each rule setting.
+	 * @param file	SGF file.
+	 */
+	void replay(File file){
+		int settings = koRules.length * suicideRules.length;
+		// Games that failed under each setting.
+		BitSet[] failed = new BitSet[settings];
+		// Games whose moves were counted, under the first setting they
+		// are legal under.
+		BitSet counted = new BitSet();
+		int count = 0;
+		for(int k = 0; k < koRules.length; k++){
+			for(int s = 0; s < suicideRules.length; s++){
+				failed[k * suicideRules.length + s] = new BitSet();
+				count = Math.max(count, replay(file, koRules[k], suicideRules[s],
+						failed[k * suicideRules.length + s], counted));
+			}
+		}
+		files.incrementAndGet();
+		games.addAndGet(count);
+		for(int n = 1; n <= count; n++){
+			StringBuilder legal = new StringBuilder();
+			StringBuilder illegal = new StringBuilder();
+			for(int i = 0; i < settings; i++){
+				StringBuilder sb = failed[i].get(n) ? illegal : legal;
+				sb.append(sb.length() > 0 ? ", " : "").append(rules(koRules[i / suicideRules.length], suicideRules[i % suicideRules.length]));
+			}
+			if(legal.length() > 0 && illegal.length() > 0){
+				divergent.incrementAndGet();
+				out.println(file + "#" + n + ": legal under " + legal + "; illegal under " + illegal);
+			}
+		}
+	}
+
+	/**
+	 * Replay every game in <code>file</code> under one rule setting.
+	 * @param failed	Set to the games with an illegal move.
+	 * @param counted	Games whose moves were already counted.  Set to
+	 * the games whose moves this call counts.
+	 * @return	Number of games read, including those that failed.
+	 */
+	private int replay(File file, int koRule, boolean suicideRule, BitSet failed, BitSet counted){
+		int n = 0;
+		try{
+			FileInputStream in = new FileInputStream(file);
+			try{
+				SgfReader reader = new SgfReader(in.getChannel(), koRule, suicideRule);
+				while(true){
+					n++;
+					Game game;
+					try{
+						game = reader.next();
+					}catch(SgfException ex){
+						errors.incrementAndGet();
+						failed.set(n);
+						out.println(file + "#" + n + " [" + rules(koRule, suicideRule) + "]: " + ex.getMessage());
+						continue;
+					}
+					if(game == null)
+						break;
+					replays.incrementAndGet();
+					if(!counted.get(n)){
+						counted.set(n);
+						moves.addAndGet(game.getMoveCount());
+					}
+				}
+			}finally{
+				in.close();
+			}
+		}catch(IOException ex){
+			errors.incrementAndGet();
+			out.println(file + ": " + ex.getMessage());
+		}
+		return n - 1;
+	}
+
+	/**
+	 * Print the totals and the throughput.  Each game and its moves are
+	 * counted once however many rule settings it is replayed under;
+	 * replays counts every game replayed under every setting.
+	 * @param seconds	Time taken.
+	 */
+	void printSummary(double seconds){
+		out.println(String.format(Locale.US, "%d files, %d games, %d moves, %d errors, %d divergent games in %.2f s",
+				files.get(), games.get(), moves.get(), errors.get(), divergent.get(), seconds));
+		out.println(String.format(Locale.US, "%.0f games/s, %.0f moves/s, %.0f replays/s (%d replays)",
+				games.get() / seconds, moves.get() / seconds, replays.get() / seconds, replays.get()));
+	}
+
+	private static String rules(int koRule, boolean suicideRule){
+		for(int i = 0; i < KO_VALUES.length; i++){
+			if(KO_VALUES[i] == koRule)
+				return KO_RULES[i] + (suicideRule ? "/suicide" : "/no suicide");
+		}
+		return koRule + (suicideRule ? "/suicide" : "/no suicide");
+	}
+
+	private static int[] koRules(String names){
+		String[] parts = names.split(",");
+		int[] rules = new int[parts.length];
+		for(int i = 0; i < parts.length; i++){
+			rules[i] = -1;
+			for(int j = 0; j < KO_RULES.length; j++){
+				if(KO_RULES[j].equals(parts[i]))
+					rules[i] = KO_VALUES[j];
+			}
+			if(rules[i] < 0)
+				throw new IllegalArgumentException("Unknown ko rule: " + parts[i]);
+		}
+		return rules;
+	}
+
+	private static boolean[] suicideRules(String names){
+		String[] parts = names.split(",");
+		boolean[] rules = new boolean[parts.length];
+		for(int i = 0; i < parts.length; i++){
+			if(!parts[i].equals("on") && !parts[i].equals("off"))
+				throw new IllegalArgumentException("Unknown suicide rule: " + parts[i]);
+			rules[i] = parts[i].equals("on");
+		}
+		return rules;
+	}
+}